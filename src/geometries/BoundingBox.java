@@ -9,15 +9,25 @@ import static java.lang.Math.*;
  * Class to represent a bounding box
  */
 public class BoundingBox {
+    /**
+     * The maximum point of the bounding box
+     */
+    public final Point max;
+
     /**
      * The minimum point of the bounding box
      */
-    public Point max;
+    public final Point min;
 
     /**
-     * The maximum point of the bounding box
+     * Entry distance returned for a box that is not intersected by a ray
      */
-    public Point min;
+    public static final double MISS = Double.POSITIVE_INFINITY;
+
+    /**
+     * The coordinates of the box as primitives: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    final double[] bounds;
 
     /**
      * Constructor for the bounding box
@@ -28,6 +38,7 @@ public class BoundingBox {
     public BoundingBox(Point min, Point max) {
         this.min = min;
         this.max = max;
+        bounds = new double[]{min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ()};
     }
 
     /**
@@ -37,47 +48,69 @@ public class BoundingBox {
      * @return true if the ray intersects the bounding box, false otherwise
      */
     public boolean hasIntersections(Ray ray) {
+        return entryDistance(ray, Double.POSITIVE_INFINITY) != MISS;
+    }
 
+    /**
+     * Find the distance in which a ray enters the bounding box, so it can be compared
+     * against the closest intersection found so far
+     *
+     * @param ray         the ray to check
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance (negative if the ray starts inside the box),
+     * or {@link #MISS} if the ray does not intersect the box within the maximal distance
+     */
+    public double entryDistance(Ray ray, double maxDistance) {
         Point head = ray.getHead();
-        Vector direction = ray.getDirection();
-
-        double[] tMin = {Double.NEGATIVE_INFINITY};
-        double[] tMax = {Double.POSITIVE_INFINITY};
-
-        boolean xIntersect = intersectsOneAxis(direction.getX(), min.getX(), max.getX(), head.getX(), tMin, tMax);
-        if (!xIntersect) return false;
-
-        boolean yIntersect = intersectsOneAxis(direction.getY(), min.getY(), max.getY(), head.getY(), tMin, tMax);
-        if (!yIntersect) return false;
-
-        boolean zIntersect = intersectsOneAxis(direction.getZ(), min.getZ(), max.getZ(), head.getZ(), tMin, tMax);
-        if (!zIntersect) return false;
-
-        return tMax[0] >= tMin[0];
+        return entryDistance(bounds, 0, head.getX(), head.getY(), head.getZ(),
+                ray.getInverseX(), ray.getInverseY(), ray.getInverseZ(),
+                ray.getSignX(), ray.getSignY(), ray.getSignZ(), maxDistance);
     }
 
     /**
-     * Checks if a ray intersects the bounding box along a specific axis (X, Y, or Z).
-     * This method calculates the entry and exit points of the ray for the given axis
-     * and updates the minimum and maximum intersection distances accordingly.
+     * Slab test of a ray against box coordinates stored in an array.
+     * The near and far planes of each axis are picked by the sign of the ray direction and the
+     * distances are computed with the reciprocal direction, so there are no divisions or allocations.
+     * A zero direction component gives infinite distances (or NaN when the head lies exactly on a plane),
+     * and such an axis is simply ignored by the comparisons, without a special case.
      *
-     * @param dir    The direction component of the ray along the axis being checked.
-     * @param boxMin The minimum coordinate of the bounding box along the axis.
-     * @param boxMax The maximum coordinate of the bounding box along the axis.
-     * @param head   The coordinate of the ray's origin (head) along the axis.
-     * @param tMin   An array holding the current minimum intersection distance (updated in-place).
-     * @param tMax   An array holding the current maximum intersection distance (updated in-place).
-     * @return true if the ray intersects the bounding box along the given axis, false otherwise.
+     * @param bounds      the array of box coordinates (minX, minY, minZ, maxX, maxY, maxZ)
+     * @param offset      the index of the box coordinates in the array
+     * @param hx          the x coordinate of the ray head
+     * @param hy          the y coordinate of the ray head
+     * @param hz          the z coordinate of the ray head
+     * @param ix          the reciprocal of the x component of the ray direction
+     * @param iy          the reciprocal of the y component of the ray direction
+     * @param iz          the reciprocal of the z component of the ray direction
+     * @param sx          the sign of the x component of the ray direction (1 for negative)
+     * @param sy          the sign of the y component of the ray direction (1 for negative)
+     * @param sz          the sign of the z component of the ray direction (1 for negative)
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance, or {@link #MISS} if the ray does not intersect the box
      */
-    boolean intersectsOneAxis(double dir, double boxMin, double boxMax, double head, double[] tMin, double[] tMax) {
-        if (dir != 0) {
-            double tEntry = (boxMin - head) / dir;
-            double tExit = (boxMax - head) / dir;
-            tMin[0] = max(tMin[0], min(tEntry, tExit));
-            tMax[0] = min(tMax[0], max(tEntry, tExit));
-            return true;
-        }
-        return head > boxMin && head < boxMax;
+    static double entryDistance(double[] bounds, int offset,
+                                double hx, double hy, double hz,
+                                double ix, double iy, double iz,
+                                int sx, int sy, int sz, double maxDistance) {
+        double tMin = Double.NEGATIVE_INFINITY;
+        double tMax = maxDistance;
+
+        double near = (bounds[offset + sx * 3] - hx) * ix;
+        double far = (bounds[offset + 3 - sx * 3] - hx) * ix;
+        if (near > tMin) tMin = near;
+        if (far < tMax) tMax = far;
+
+        near = (bounds[offset + 1 + sy * 3] - hy) * iy;
+        far = (bounds[offset + 4 - sy * 3] - hy) * iy;
+        if (near > tMin) tMin = near;
+        if (far < tMax) tMax = far;
+
+        near = (bounds[offset + 2 + sz * 3] - hz) * iz;
+        far = (bounds[offset + 5 - sz * 3] - hz) * iz;
+        if (near > tMin) tMin = near;
+        if (far < tMax) tMax = far;
+
+        return tMin <= tMax && tMax >= 0 ? tMin : MISS;
     }
 
     /**
@@ -93,6 +126,18 @@ public class BoundingBox {
         );
     }
 
+    /**
+     * Get the surface area of the bounding box
+     *
+     * @return the surface area of the bounding box
+     */
+    public double getSurfaceArea() {
+        double dx = max.getX() - min.getX();
+        double dy = max.getY() - min.getY();
+        double dz = max.getZ() - min.getZ();
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
     /**
      * Union of two bounding boxes
      *
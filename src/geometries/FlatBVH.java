@@ -0,0 +1,375 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static geometries.BoundingBox.MISS;
+import static geometries.BoundingBox.entryDistance;
+
+/**
+ * A compiled, array-backed form of a BVH of nested {@link Geometries}.
+ * The bounds of all the nodes and bodies are packed into primitive arrays, and every node refers to
+ * its bodies and child nodes by offsets into these arrays, so a ray traverses the hierarchy without
+ * chasing the node objects and their bounding box points.
+ */
+public class FlatBVH extends Intersectable {
+    /**
+     * The amount of values stored per bounds: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    private static final int BOUNDS_SIZE = 6;
+
+    /**
+     * Bounds that contain everything - used for unbounded nodes and bodies
+     */
+    private static final BoundingBox INFINITE_BOX = new BoundingBox(
+            new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY),
+            new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY));
+
+    /**
+     * The maximal amount of rays in a packet - the active rays of a packet are tracked by the bits of a long
+     */
+    private static final int PACKET_SIZE = Long.SIZE;
+
+    /**
+     * The bounds of the nodes, {@link #BOUNDS_SIZE} values per node
+     */
+    private final double[] nodeBounds;
+    /**
+     * The index of the first child node of each node (the children of a node are stored contiguously)
+     */
+    private final int[] childOffsets;
+    /**
+     * The amount of child nodes of each node
+     */
+    private final int[] childCounts;
+    /**
+     * The index of the first body of each node (the bodies of a node are stored contiguously)
+     */
+    private final int[] bodyOffsets;
+    /**
+     * The amount of bodies of each node
+     */
+    private final int[] bodyCounts;
+
+    /**
+     * The bodies of all the nodes
+     */
+    private final Intersectable[] bodies;
+    /**
+     * The bounds of the bodies, {@link #BOUNDS_SIZE} values per body
+     */
+    private final double[] bodyBounds;
+
+    /**
+     * The size of the traversal stack required for the deepest path in the hierarchy
+     */
+    private final int stackSize;
+
+    /**
+     * The amount of nodes that were allocated while flattening
+     */
+    private int nodesCount = 0;
+    /**
+     * The amount of bodies that were placed while flattening
+     */
+    private int placedBodies = 0;
+
+    /**
+     * Compile the (already built) hierarchy of the given geometries into the flat layout
+     *
+     * @param root the root of the hierarchy
+     */
+    public FlatBVH(Geometries root) {
+        int[] sizes = new int[2];
+        countNodes(root, sizes);
+        nodeBounds = new double[sizes[0] * BOUNDS_SIZE];
+        childOffsets = new int[sizes[0]];
+        childCounts = new int[sizes[0]];
+        bodyOffsets = new int[sizes[0]];
+        bodyCounts = new int[sizes[0]];
+        bodies = new Intersectable[sizes[1]];
+        bodyBounds = new double[sizes[1] * BOUNDS_SIZE];
+
+        nodesCount = 1;
+        stackSize = flatten(root, 0);
+        boundingBox = root.getBoundingBox();
+    }
+
+    /**
+     * Count the nodes and the bodies of a hierarchy
+     *
+     * @param node  the root of the hierarchy
+     * @param sizes the counters to increase - nodes count and bodies count
+     */
+    private static void countNodes(Geometries node, int[] sizes) {
+        sizes[0]++;
+        for (Intersectable body : node.getGeometries()) {
+            if (body instanceof Geometries child) countNodes(child, sizes);
+            else sizes[1]++;
+        }
+    }
+
+    /**
+     * Store a node in the flat arrays. The child nodes are allocated contiguously before they are flattened.
+     *
+     * @param node  the node to store
+     * @param index the index allocated for the node
+     * @return the traversal stack size required by the node's subtree
+     */
+    private int flatten(Geometries node, int index) {
+        storeBounds(nodeBounds, index, node.getBoundingBox());
+
+        List<Geometries> children = new LinkedList<>();
+        bodyOffsets[index] = placedBodies;
+        for (Intersectable body : node.getGeometries()) {
+            if (body instanceof Geometries child) children.add(child);
+            else {
+                storeBounds(bodyBounds, placedBodies, body.getBoundingBox());
+                bodies[placedBodies++] = body;
+            }
+        }
+        bodyCounts[index] = placedBodies - bodyOffsets[index];
+
+        childOffsets[index] = nodesCount;
+        childCounts[index] = children.size();
+        nodesCount += children.size();
+
+        int childrenStack = 0;
+        int childIndex = childOffsets[index];
+        for (Geometries child : children)
+            childrenStack = Math.max(childrenStack, flatten(child, childIndex++));
+        return children.size() + childrenStack;
+    }
+
+    /**
+     * Store a bounding box in a bounds array
+     *
+     * @param bounds the bounds array
+     * @param index  the index of the bounds in the array
+     * @param box    the bounding box, or null for unbounded item
+     */
+    private static void storeBounds(double[] bounds, int index, BoundingBox box) {
+        if (box == null) box = INFINITE_BOX;
+        System.arraycopy(box.bounds, 0, bounds, index * BOUNDS_SIZE, BOUNDS_SIZE);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        double hx = head.getX(), hy = head.getY(), hz = head.getZ();
+        double ix = ray.getInverseX(), iy = ray.getInverseY(), iz = ray.getInverseZ();
+        int sx = ray.getSignX(), sy = ray.getSignY(), sz = ray.getSignZ();
+
+        List<GeoPoint> result = null;
+        int[] stack = new int[stackSize + 1];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(nodeBounds, node * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance) == MISS)
+                continue;
+
+            int end = bodyOffsets[node] + bodyCounts[node];
+            for (int i = bodyOffsets[node]; i < end; ++i) {
+                if (entryDistance(bodyBounds, i * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance) == MISS)
+                    continue;
+                var points = bodies[i].findGeoIntersectionsHelper(ray, maxDistance);
+                if (points != null) {
+                    if (result == null) result = new LinkedList<>(points);
+                    else result.addAll(points);
+                }
+            }
+
+            end = childOffsets[node] + childCounts[node];
+            for (int child = childOffsets[node]; child < end; ++child)
+                stack[top++] = child;
+        }
+        return result;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        double hx = head.getX(), hy = head.getY(), hz = head.getZ();
+        double ix = ray.getInverseX(), iy = ray.getInverseY(), iz = ray.getInverseZ();
+        int sx = ray.getSignX(), sy = ray.getSignY(), sz = ray.getSignZ();
+
+        double rootEntry = entryDistance(nodeBounds, 0, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance);
+        if (rootEntry == MISS) return null;
+
+        GeoPoint closest = null;
+        // the nodes to visit with their entry distances, the nearest node is on the top
+        int[] stack = new int[stackSize + 1];
+        double[] entries = new double[stackSize + 1];
+        int top = 0;
+        stack[top] = 0;
+        entries[top++] = rootEntry;
+        while (top > 0) {
+            int node = stack[--top];
+            // skip nodes that start beyond the closest intersection found so far
+            if (entries[top] > maxDistance) continue;
+
+            int end = bodyOffsets[node] + bodyCounts[node];
+            for (int i = bodyOffsets[node]; i < end; ++i) {
+                if (entryDistance(bodyBounds, i * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance) == MISS)
+                    continue;
+                var geoPoint = bodies[i].findClosestGeoIntersectionHelper(ray, maxDistance);
+                if (geoPoint != null) {
+                    closest = geoPoint;
+                    maxDistance = geoPoint.getDistance(head);
+                }
+            }
+
+            // push the intersected children sorted so that the nearest one is visited first
+            int bottom = top;
+            end = childOffsets[node] + childCounts[node];
+            for (int child = childOffsets[node]; child < end; ++child) {
+                double entry = entryDistance(nodeBounds, child * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance);
+                if (entry == MISS) continue;
+                int i = top++;
+                for (; i > bottom && entries[i - 1] < entry; --i) {
+                    stack[i] = stack[i - 1];
+                    entries[i] = entries[i - 1];
+                }
+                stack[i] = child;
+                entries[i] = entry;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public GeoPoint[] findClosestGeoIntersections(Ray[] rays) {
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        for (int from = 0; from < rays.length; from += PACKET_SIZE)
+            findClosestGeoIntersections(rays, from, Math.min(rays.length, from + PACKET_SIZE), closest);
+        return closest;
+    }
+
+    /**
+     * Find the closest intersections of a packet of rays. The packet traverses the hierarchy together:
+     * every node is fetched once for the whole packet and its bounds are tested against the rays that are
+     * still active, so the rays that diverge from the packet drop out of it.
+     *
+     * @param rays    the rays
+     * @param from    the index of the first ray of the packet
+     * @param to      the index after the last ray of the packet (at most {@link #PACKET_SIZE} rays)
+     * @param closest the array to store the closest intersections of the rays in
+     */
+    private void findClosestGeoIntersections(Ray[] rays, int from, int to, GeoPoint[] closest) {
+        int count = to - from;
+        double[] hx = new double[count], hy = new double[count], hz = new double[count];
+        double[] ix = new double[count], iy = new double[count], iz = new double[count];
+        int[] sx = new int[count], sy = new int[count], sz = new int[count];
+        double[] maxDistances = new double[count];
+        for (int r = 0; r < count; ++r) {
+            Ray ray = rays[from + r];
+            Point head = ray.getHead();
+            hx[r] = head.getX();
+            hy[r] = head.getY();
+            hz[r] = head.getZ();
+            ix[r] = ray.getInverseX();
+            iy[r] = ray.getInverseY();
+            iz[r] = ray.getInverseZ();
+            sx[r] = ray.getSignX();
+            sy[r] = ray.getSignY();
+            sz[r] = ray.getSignZ();
+            maxDistances[r] = Double.POSITIVE_INFINITY;
+        }
+
+        // the nodes to visit with the masks of their active rays and the entry distances of their first
+        // active rays, the nearest node is on the top
+        int[] stack = new int[stackSize + 1];
+        long[] masks = new long[stackSize + 1];
+        double[] entries = new double[stackSize + 1];
+        int top = 0;
+        stack[top] = 0;
+        masks[top++] = count == PACKET_SIZE ? -1L : (1L << count) - 1;
+        while (top > 0) {
+            int node = stack[--top];
+            int offset = node * BOUNDS_SIZE;
+            // the bounds of the node are tested against the rays that are still active in the packet
+            long active = 0;
+            for (long mask = masks[top]; mask != 0; mask &= mask - 1) {
+                int r = Long.numberOfTrailingZeros(mask);
+                if (entryDistance(nodeBounds, offset, hx[r], hy[r], hz[r], ix[r], iy[r], iz[r],
+                        sx[r], sy[r], sz[r], maxDistances[r]) != MISS)
+                    active |= 1L << r;
+            }
+            if (active == 0) continue;
+
+            int end = bodyOffsets[node] + bodyCounts[node];
+            for (int i = bodyOffsets[node]; i < end; ++i)
+                for (long mask = active; mask != 0; mask &= mask - 1) {
+                    int r = Long.numberOfTrailingZeros(mask);
+                    if (entryDistance(bodyBounds, i * BOUNDS_SIZE, hx[r], hy[r], hz[r], ix[r], iy[r], iz[r],
+                            sx[r], sy[r], sz[r], maxDistances[r]) == MISS)
+                        continue;
+                    Ray ray = rays[from + r];
+                    var geoPoint = bodies[i].findClosestGeoIntersectionHelper(ray, maxDistances[r]);
+                    if (geoPoint != null) {
+                        closest[from + r] = geoPoint;
+                        maxDistances[r] = geoPoint.getDistance(ray.getHead());
+                    }
+                }
+
+            // push the children sorted by the entry distance of the first active ray (a coherent packet
+            // agrees on the order), the children that it misses are visited last
+            int first = Long.numberOfTrailingZeros(active);
+            int bottom = top;
+            end = childOffsets[node] + childCounts[node];
+            for (int child = childOffsets[node]; child < end; ++child) {
+                double entry = entryDistance(nodeBounds, child * BOUNDS_SIZE, hx[first], hy[first], hz[first],
+                        ix[first], iy[first], iz[first], sx[first], sy[first], sz[first], maxDistances[first]);
+                int i = top++;
+                for (; i > bottom && entries[i - 1] < entry; --i) {
+                    stack[i] = stack[i - 1];
+                    masks[i] = masks[i - 1];
+                    entries[i] = entries[i - 1];
+                }
+                stack[i] = child;
+                masks[i] = active;
+                entries[i] = entry;
+            }
+        }
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        Point head = ray.getHead();
+        double hx = head.getX(), hy = head.getY(), hz = head.getZ();
+        double ix = ray.getInverseX(), iy = ray.getInverseY(), iz = ray.getInverseZ();
+        int sx = ray.getSignX(), sy = ray.getSignY(), sz = ray.getSignZ();
+
+        int[] stack = new int[stackSize + 1];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(nodeBounds, node * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance) == MISS)
+                continue;
+
+            int end = bodyOffsets[node] + bodyCounts[node];
+            for (int i = bodyOffsets[node]; i < end; ++i) {
+                if (entryDistance(bodyBounds, i * BOUNDS_SIZE, hx, hy, hz, ix, iy, iz, sx, sy, sz, maxDistance) == MISS)
+                    continue;
+                ktr = bodies[i].findTransparencyHelper(ray, maxDistance, ktr, minK);
+                // stop at the first blocker
+                if (ktr.lowerThan(minK)) return Double3.ZERO;
+            }
+
+            end = childOffsets[node] + childCounts[node];
+            for (int child = childOffsets[node]; child < end; ++child)
+                stack[top++] = child;
+        }
+        return ktr;
+    }
+
+    @Override
+    public void calcBoundingBox() {
+    }
+}
@@ -1,12 +1,15 @@
 package geometries;
 
+import primitives.Double3;
+import primitives.Point;
 import primitives.Ray;
 
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
+import static primitives.Util.isZero;
+
 /**
  * The Geometries class represents a collection of geometric shapes that can be intersected by a ray.
  */
@@ -17,6 +20,32 @@ public class Geometries extends Intersectable {
      */
     private final List<Intersectable> geometries = new LinkedList<>();//collection of geometries
 
+    /**
+     * Maximum number of bodies that may be kept together in a leaf node of the BVH
+     */
+    private static final int MAX_BODIES_IN_LEAF = 4;
+
+    /**
+     * Number of bins per axis used by the Surface Area Heuristic
+     */
+    private static final int SAH_BINS = 12;
+
+    /**
+     * Estimated cost of traversing a BVH node relative to the cost of intersecting a body
+     */
+    private static final double TRAVERSAL_COST = 1.0;
+
+    /**
+     * The compiled flat form of the BVH, used for finding intersections once the BVH is built.
+     * It is published only after the whole tree is built, so readers never see a partial tree.
+     */
+    private volatile FlatBVH flatBVH = null;
+
+    /**
+     * Whether the bounding boxes of the geometries are calculated and up-to-date
+     */
+    private volatile boolean boundingBoxesReady = false;
+
     /**
      * Default constructor that creates an empty collection of geometries.
      */
@@ -50,6 +79,8 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         this.geometries.addAll(Arrays.asList(geometries));
+        flatBVH = null;
+        boundingBoxesReady = false;
     }
 
     /**
@@ -59,10 +90,23 @@ public class Geometries extends Intersectable {
      */
     public void add(List<Intersectable> geometries) {
         this.geometries.addAll(geometries);
+        flatBVH = null;
+        boundingBoxesReady = false;
+    }
+
+    /**
+     * Get the geometries of the collection
+     *
+     * @return the list of the geometries
+     */
+    List<Intersectable> getGeometries() {
+        return geometries;
     }
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        if (flatBVH != null) return flatBVH.findGeoIntersectionsHelper(ray, maxDistance);
+
         List<GeoPoint> listOfPoint = null;
         for (var body : geometries) { // pass on collection of geometries
             var temp = body.findGeoIntersections(ray, maxDistance);
@@ -76,6 +120,37 @@ public class Geometries extends Intersectable {
         return listOfPoint;
     }
 
+    @Override
+    public GeoPoint[] findClosestGeoIntersections(Ray[] rays) {
+        return flatBVH != null ? flatBVH.findClosestGeoIntersections(rays) : super.findClosestGeoIntersections(rays);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        if (flatBVH != null) return flatBVH.findClosestGeoIntersectionHelper(ray, maxDistance);
+
+        GeoPoint closest = null;
+        for (var body : geometries) { // the bodies beyond the closest point so far are skipped
+            var geoPoint = body.findClosestGeoIntersection(ray, maxDistance);
+            if (geoPoint != null) {
+                closest = geoPoint;
+                maxDistance = geoPoint.getDistance(ray.getHead());
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        if (flatBVH != null) return flatBVH.findTransparencyHelper(ray, maxDistance, ktr, minK);
+
+        for (var body : geometries) {
+            ktr = body.findTransparency(ray, maxDistance, ktr, minK);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        return ktr;
+    }
+
     @Override
     public void calcBoundingBox() {
         if (geometries.isEmpty()) {
@@ -89,47 +164,191 @@ public class Geometries extends Intersectable {
     }
 
     /**
-     * Calculate the bounding box for the geometries
+     * Calculate the bounding box for the geometries.
+     * The boxes are kept until geometries are added, so repeated calls cost nothing.
+     * Cameras rendering the same scene at once may call it concurrently.
      */
-    public void makeCBR() {
+    public synchronized void makeCBR() {
+        if (boundingBoxesReady) return;
         for (var body : geometries)
             body.calcBoundingBox();
+        boundingBoxesReady = true;
     }
 
 
     /**
-     * Store the geometries as a BVH
+     * Store the geometries as a BVH, compiled into a flat array-backed layout for traversal.
+     * The BVH is kept until geometries are added, so repeated calls cost nothing.
+     * Cameras rendering the same scene at once may call it concurrently - the geometries list
+     * is rebuilt in place, so only one of them builds the tree.
      */
-    public void makeBVH() {
+    public synchronized void makeBVH() {
+        if (flatBVH != null) return;
         makeCBR();
         buildBVH();
+        flatBVH = new FlatBVH(this);
     }
 
     /**
-     * Build the geometries as a BVH
+     * Build the geometries as a BVH.
+     * The bounded geometries are split recursively into two child nodes according to the
+     * binned Surface Area Heuristic (SAH), choosing the best axis and split position per node.
      */
     private void buildBVH() {
         // extract geometries without bounding boxes into a separate list
         List<Intersectable> unboundedGeometries = geometries.stream()
-                .filter(g -> g.boundingBox == null)
-                .peek(geometries::remove).toList();
+                .filter(g -> g.boundingBox == null).toList();
+        geometries.removeAll(unboundedGeometries);
 
-        // sort geometries based on their bounding box centroids along an axis (e.g. x-axis)
-        geometries.sort(Comparator.comparingDouble(g -> g.boundingBox.getCenter().getX()));
-
-        // combine each 4 geometries into a bounding box
-        while (geometries.size() >= 4) {
-            List<Intersectable> group = new LinkedList<>();
-            for (int i = 0; i < 4; i++) {
-                group.add(geometries.removeFirst());
+        if (geometries.size() > 1) {
+            List<Intersectable> left = new LinkedList<>();
+            List<Intersectable> right = new LinkedList<>();
+            if (splitBySAH(left, right)) {
+                geometries.clear();
+                geometries.add(createNode(left));
+                geometries.add(createNode(right));
             }
-            geometries.add(new Geometries(group.toArray(new Intersectable[0])));
         }
 
-
         // combine the unbounded geometries back
         geometries.addAll(unboundedGeometries);
+    }
+
+    /**
+     * Create a BVH node from a group of bounded geometries
+     *
+     * @param group the bounded geometries of the node
+     * @return the single geometry of the group, or a new BVH node holding the group
+     */
+    private static Intersectable createNode(List<Intersectable> group) {
+        if (group.size() == 1) return group.getFirst();
+        Geometries node = new Geometries(group);
+        node.buildBVH();
+        node.calcBoundingBox();
+        return node;
+    }
+
+    /**
+     * Split the (bounded) geometries into two groups according to the binned Surface Area Heuristic.
+     * The centroids of the bodies are binned along each axis and the split with the lowest estimated
+     * cost (surface area times bodies count of each side) is chosen.
+     *
+     * @param left  the list to fill with the geometries of the left group
+     * @param right the list to fill with the geometries of the right group
+     * @return true if the geometries should be split, false if it is cheaper to keep them as a leaf
+     */
+    private boolean splitBySAH(List<Intersectable> left, List<Intersectable> right) {
+        int size = geometries.size();
+        BoundingBox[] boxes = new BoundingBox[size];
+        Point[] centers = new Point[size];
+        int index = 0;
+        for (Intersectable body : geometries) {
+            boxes[index] = body.boundingBox;
+            centers[index++] = body.boundingBox.getCenter();
+        }
+
+        BoundingBox nodeBox = boxes[0];
+        BoundingBox centersBox = new BoundingBox(centers[0], centers[0]);
+        for (int i = 1; i < size; ++i) {
+            nodeBox = nodeBox.union(boxes[i]);
+            centersBox = centersBox.union(new BoundingBox(centers[i], centers[i]));
+        }
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestSplit = 0;
+        for (int axis = 0; axis < 3; ++axis) {
+            double minCenter = coordinate(centersBox.min, axis);
+            double extent = coordinate(centersBox.max, axis) - minCenter;
+            if (isZero(extent)) continue;
+
+            // gather the bodies count and bounds of each bin
+            int[] counts = new int[SAH_BINS];
+            BoundingBox[] bins = new BoundingBox[SAH_BINS];
+            for (int i = 0; i < size; ++i) {
+                int bin = binOf(coordinate(centers[i], axis), minCenter, extent);
+                counts[bin]++;
+                bins[bin] = bins[bin] == null ? boxes[i] : bins[bin].union(boxes[i]);
+            }
 
+            // sweep from the right to gather the area and count of each right side
+            double[] rightAreas = new double[SAH_BINS];
+            int[] rightCounts = new int[SAH_BINS];
+            BoundingBox rightBox = null;
+            int rightCount = 0;
+            for (int bin = SAH_BINS - 1; bin > 0; --bin) {
+                if (bins[bin] != null)
+                    rightBox = rightBox == null ? bins[bin] : rightBox.union(bins[bin]);
+                rightCount += counts[bin];
+                rightCounts[bin] = rightCount;
+                rightAreas[bin] = rightBox == null ? 0 : rightBox.getSurfaceArea();
+            }
+
+            // sweep from the left and evaluate the cost of splitting before each bin
+            BoundingBox leftBox = null;
+            int leftCount = 0;
+            for (int bin = 1; bin < SAH_BINS; ++bin) {
+                if (bins[bin - 1] != null)
+                    leftBox = leftBox == null ? bins[bin - 1] : leftBox.union(bins[bin - 1]);
+                leftCount += counts[bin - 1];
+                if (leftCount == 0 || rightCounts[bin] == 0) continue;
+                double cost = leftBox.getSurfaceArea() * leftCount + rightAreas[bin] * rightCounts[bin];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestSplit = bin;
+                }
+            }
+        }
+
+        if (bestAxis == -1) {
+            // all the centroids coincide - split the bodies evenly
+            if (size <= MAX_BODIES_IN_LEAF) return false;
+            int half = size / 2;
+            for (Intersectable body : geometries)
+                (left.size() < half ? left : right).add(body);
+            return true;
+        }
+
+        // keep small groups as a leaf when splitting them is not expected to pay off
+        double nodeArea = nodeBox.getSurfaceArea();
+        if (size <= MAX_BODIES_IN_LEAF
+                && (isZero(nodeArea) || TRAVERSAL_COST + bestCost / nodeArea >= size))
+            return false;
+
+        double minCenter = coordinate(centersBox.min, bestAxis);
+        double extent = coordinate(centersBox.max, bestAxis) - minCenter;
+        index = 0;
+        for (Intersectable body : geometries)
+            (binOf(coordinate(centers[index++], bestAxis), minCenter, extent) < bestSplit ? left : right).add(body);
+        return true;
+    }
+
+    /**
+     * Find the SAH bin of a centroid coordinate
+     *
+     * @param value     the centroid coordinate
+     * @param minCenter the minimal centroid coordinate along the axis
+     * @param extent    the extent of the centroids along the axis
+     * @return the index of the bin
+     */
+    private static int binOf(double value, double minCenter, double extent) {
+        return Math.min(SAH_BINS - 1, (int) (SAH_BINS * (value - minCenter) / extent));
+    }
+
+    /**
+     * Get a coordinate of a point by its axis index
+     *
+     * @param point the point
+     * @param axis  the axis index (0 - x, 1 - y, 2 - z)
+     * @return the coordinate of the point along the axis
+     */
+    private static double coordinate(Point point, int axis) {
+        return switch (axis) {
+            case 0 -> point.getX();
+            case 1 -> point.getY();
+            default -> point.getZ();
+        };
     }
 
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
 import java.util.List;
 
@@ -17,7 +19,9 @@ public abstract class Intersectable {
 
     /**
      * GeoPoint class represents a point on a geometry.
-     * It contains the geometry and the specific point on the geometry.
+     * It contains the geometry and the specific point on the geometry, and serves as a hit record:
+     * it carries the distance from the intersecting ray head, the normal to the geometry at the point
+     * (calculated once) and optionally the barycentric coordinates of the point in a triangle.
      */
     public static class GeoPoint {
         /**
@@ -28,6 +32,20 @@ public abstract class Intersectable {
          * The specific point on the geometry.
          */
         public Point point;
+        /**
+         * The distance of the point from the head of the ray that intersected the geometry,
+         * or NaN if it is unknown.
+         */
+        public double distance;
+        /**
+         * The barycentric coordinates of the point relative to the second and the third vertices
+         * of a triangle, or NaN for other geometries.
+         */
+        public double u = Double.NaN, v = Double.NaN;
+        /**
+         * The normal to the geometry at the point, calculated on the first demand.
+         */
+        private Vector normal;
 
         /**
          * Constructs a GeoPoint with the specified geometry and point.
@@ -36,8 +54,53 @@ public abstract class Intersectable {
          * @param point    the specific point on the geometry
          */
         public GeoPoint(Geometry geometry, Point point) {
+            this(geometry, point, Double.NaN, null);
+        }
+
+        /**
+         * Constructs a GeoPoint of an intersection with the specified geometry.
+         *
+         * @param geometry the geometry of the point
+         * @param point    the specific point on the geometry
+         * @param distance the distance of the point from the head of the intersecting ray
+         */
+        public GeoPoint(Geometry geometry, Point point, double distance) {
+            this(geometry, point, distance, null);
+        }
+
+        /**
+         * Constructs a GeoPoint of an intersection with the specified geometry, when the normal is already known.
+         *
+         * @param geometry the geometry of the point
+         * @param point    the specific point on the geometry
+         * @param distance the distance of the point from the head of the intersecting ray
+         * @param normal   the normal to the geometry at the point, or null to calculate it on demand
+         */
+        public GeoPoint(Geometry geometry, Point point, double distance, Vector normal) {
             this.geometry = geometry;
             this.point = point;
+            this.distance = distance;
+            this.normal = normal;
+        }
+
+        /**
+         * Get the normal to the geometry at the point. It is calculated once and kept for the next calls.
+         *
+         * @return the normal to the geometry at the point
+         */
+        public Vector getNormal() {
+            if (normal == null) normal = geometry.getNormal(point);
+            return normal;
+        }
+
+        /**
+         * Get the distance of the point from the head of the ray that intersected the geometry
+         *
+         * @param head the head of the intersecting ray
+         * @return the known distance of the intersection, or the distance calculated from the head
+         */
+        public double getDistance(Point head) {
+            return Double.isNaN(distance) ? point.distance(head) : distance;
         }
 
         @Override
@@ -102,6 +165,106 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Method to find the closest intersection of a ray with the geometry
+     *
+     * @param ray the ray to find the intersection with
+     * @return the closest intersection point, or null if there are no intersections
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Method to find the closest intersection of a ray with the geometry
+     *
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the maximum distance to find the intersection in
+     * @return the closest intersection point, or null if there are no intersections
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+        if (boundingBox != null && !boundingBox.hasIntersections(ray))
+            return null;
+        return findClosestGeoIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Method to find the closest intersections of a packet of rays with the geometry, e.g. the coherent
+     * primary rays of neighbouring pixels. The default implementation finds them one by one, acceleration
+     * structures override it to traverse their hierarchy together for the whole packet.
+     *
+     * @param rays the rays to find the intersections with
+     * @return the closest intersection of each ray (null if there is none), in the order of the rays
+     */
+    public GeoPoint[] findClosestGeoIntersections(Ray[] rays) {
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            closest[i] = findClosestGeoIntersection(rays[i]);
+        return closest;
+    }
+
+    /**
+     * Helper method to find the closest geometric intersection of the given ray.
+     * The default implementation picks the closest of all the intersections, composite geometries
+     * override it to shrink the maximum distance as closer intersections are found.
+     *
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the distance for ray
+     * @return the closest intersection point, or null if there are no intersections
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        return ray.findClosestGeoPoint(findGeoIntersectionsHelper(ray, maxDistance));
+    }
+
+    /**
+     * Method to find the transparency of the geometry along a ray segment - the product of
+     * the transmission coefficients of all the intersections up to the maximum distance
+     *
+     * @param ray         the ray to find the intersections with
+     * @param maxDistance the maximum distance to find the intersections in
+     * @param minK        the transparency below which the ray is considered as fully blocked
+     * @return the transparency along the ray segment, or {@link Double3#ZERO} if it is blocked
+     */
+    public final Double3 findTransparency(Ray ray, double maxDistance, double minK) {
+        return findTransparency(ray, maxDistance, Double3.ONE, minK);
+    }
+
+    /**
+     * Method to accumulate the transparency of the geometry along a ray segment
+     *
+     * @param ray         the ray to find the intersections with
+     * @param maxDistance the maximum distance to find the intersections in
+     * @param ktr         the transparency accumulated so far
+     * @param minK        the transparency below which the ray is considered as fully blocked
+     * @return the accumulated transparency, or {@link Double3#ZERO} if the ray is blocked
+     */
+    public final Double3 findTransparency(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        if (boundingBox != null && !boundingBox.hasIntersections(ray))
+            return ktr;
+        return findTransparencyHelper(ray, maxDistance, ktr, minK);
+    }
+
+    /**
+     * Helper method to accumulate the transparency of the geometry along a ray segment.
+     * It stops as soon as the transparency drops below the minimum, so an opaque
+     * intersection ends the search immediately.
+     *
+     * @param ray         the ray to find the intersections with
+     * @param maxDistance the distance for ray
+     * @param ktr         the transparency accumulated so far
+     * @param minK        the transparency below which the ray is considered as fully blocked
+     * @return the accumulated transparency, or {@link Double3#ZERO} if the ray is blocked
+     */
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        var intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return ktr;
+        for (GeoPoint geoPoint : intersections) {
+            ktr = ktr.product(geoPoint.geometry.getMaterial().kT);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        return ktr;
+    }
+
     /**
      * Get the bounding box of this intersect
      *
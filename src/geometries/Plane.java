@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.MutableVector;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -74,12 +75,12 @@ public class Plane extends Geometry {
         double nv = normal.dotProduct(direction);
         if (isZero(nv)) return null; // the ray is parallel to the plane (0 points)
 
-        double npMinusP0 = normal.dotProduct(p.subtract(p0));
+        double npMinusP0 = new MutableVector(p).subtract(p0).dotProduct(normal);
         double t = alignZero(npMinusP0 / nv);
         return (t <= 0 || alignZero(maxDistance - t) <= 0)
                 // if t<0 then the ray not cut the plane and if t == 0 then the ray lie start on the plane.        if (t > 0){
                 ? null
-                : List.of(new GeoPoint(this, ray.getPoint(t)));
+                : List.of(new GeoPoint(this, ray.getPoint(t), t, normal));
     }
 
     @Override
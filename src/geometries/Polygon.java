@@ -146,7 +146,8 @@ public class Polygon extends Geometry {
 
         }
 
-        return List.of(new GeoPoint(this, intersectionsPoints.getFirst().point));
+        GeoPoint planePoint = intersectionsPoints.getFirst();
+        return List.of(new GeoPoint(this, planePoint.point, planePoint.distance, planePoint.getNormal()));
     }
 
 }
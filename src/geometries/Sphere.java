@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.MutableVector;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -40,10 +41,11 @@ public class Sphere extends RadialGeometry {
         Point p0 = ray.getHead();
         Vector v = ray.getDirection();
         if (center.equals(p0))
-            return List.of(new GeoPoint(this, center.add(v.scale(radius))));
+            return List.of(new GeoPoint(this, center.add(v.scale(radius)), radius, v));
 
-        Vector u = center.subtract(p0);  // Vector from ray start to sphere center
-        double tm = v.dotProduct(u); // Projection of u on the ray direction
+        // Vector from ray start to sphere center, calculated in place
+        MutableVector u = new MutableVector(center).subtract(p0);
+        double tm = u.dotProduct(v); // Projection of u on the ray direction
         // Square of the distance from the sphere center to the ray
         double dSquared = u.lengthSquared() - tm * tm;
         double thSquared = radiusSquared - dSquared;
@@ -58,11 +60,11 @@ public class Sphere extends RadialGeometry {
         if (t1 <= 0)
             return alignZero(maxDistance - alignZero(t2)) <= 0
                     ? null
-                    : List.of(new GeoPoint(this, ray.getPoint(t2)));
+                    : List.of(new GeoPoint(this, ray.getPoint(t2), t2));
         else
             return alignZero(maxDistance - alignZero(t2)) <= 0
-                    ? List.of(new GeoPoint(this, ray.getPoint(t1)))
-                    : List.of(new GeoPoint(this, ray.getPoint(t1)), new GeoPoint(this, ray.getPoint(t2)));
+                    ? List.of(new GeoPoint(this, ray.getPoint(t1), t1))
+                    : List.of(new GeoPoint(this, ray.getPoint(t1), t1), new GeoPoint(this, ray.getPoint(t2), t2));
     }
 
     @Override
@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -7,12 +8,34 @@ import primitives.Vector;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * Represents a triangle in a 3D space.
  * A triangle is a polygon with exactly three vertices.
  */
 public class Triangle extends Polygon {
+    /**
+     * The coordinates of the first vertex
+     */
+    private final double p1x, p1y, p1z;
+
+    /**
+     * The components of the first edge (from the first vertex to the second)
+     */
+    private final double e1x, e1y, e1z;
+
+    /**
+     * The components of the second edge (from the first vertex to the third)
+     */
+    private final double e2x, e2y, e2z;
+
+    /**
+     * The inverse of the product of the lengths of the edges, which scales the determinant of the
+     * intersection to the sine of the angle between the ray and the plane
+     */
+    private final double inverseEdgesScale;
+
     /**
      * Constructs a Triangle with all the points of the triangle.
      *
@@ -22,39 +45,81 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point p1, Point p2, Point p3) {
         super(p1, p2, p3);
+        p1x = p1.getX();
+        p1y = p1.getY();
+        p1z = p1.getZ();
+        e1x = p2.getX() - p1x;
+        e1y = p2.getY() - p1y;
+        e1z = p2.getZ() - p1z;
+        e2x = p3.getX() - p1x;
+        e2y = p3.getY() - p1y;
+        e2z = p3.getZ() - p1z;
+        inverseEdgesScale = 1 / Math.sqrt((e1x * e1x + e1y * e1y + e1z * e1z)
+                * (e2x * e2x + e2y * e2y + e2z * e2z));
     }
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        // Find intersections of the ray with the plane of the triangle
-        final var intersectionsPoints = plane.findGeoIntersections(ray, maxDistance);
-        //intersectionsPoints is null that means that there are no cut points
-        if (intersectionsPoints == null) return null;
+        GeoPoint geoPoint = findGeoPoint(ray, maxDistance);
+        return geoPoint == null ? null : List.of(geoPoint);
+    }
 
-        // Get the origin point and direction vector of the ray
-        Point p0 = ray.getHead();
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        return findGeoPoint(ray, maxDistance);
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        if (findGeoPoint(ray, maxDistance) == null) return ktr;
+        ktr = ktr.product(getMaterial().kT);
+        return ktr.lowerThan(minK) ? Double3.ZERO : ktr;
+    }
+
+    /**
+     * Find the intersection of a ray with the triangle by the M&ouml;ller-Trumbore algorithm,
+     * using the edges that are precomputed at construction.
+     * Intersections on the edges and the vertices are not counted.
+     * Nothing is allocated unless the ray hits the triangle.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximum distance of the intersection
+     * @return the intersection with its distance, normal and barycentric coordinates, or null if there is none
+     */
+    private GeoPoint findGeoPoint(Ray ray, double maxDistance) {
         Vector v = ray.getDirection();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
 
-        // Calculate vectors from the ray origin to the triangle vertices
-        Vector v1 = vertices.get(0).subtract(p0);
-        Vector v2 = vertices.get(1).subtract(p0);
-        // Calculate the normals to the edges of the triangle
-        Vector n1 = v1.crossProduct(v2).normalize();
-        // Calculate the dot products of the ray direction with the edge normals
-        double vn1 = alignZero(v.dotProduct(n1));
-        if (vn1 == 0) return null;
+        // p = v x e2
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        // the ray is parallel to the plane of the triangle - the determinant is scaled by the edges
+        // (the direction of the ray is a unit vector), so the test is the same for a triangle of any size
+        if (isZero(det * inverseEdgesScale)) return null;
+        double invDet = 1 / det;
 
-        Vector v3 = vertices.get(2).subtract(p0);
-        Vector n2 = v2.crossProduct(v3).normalize();
-        double vn2 = alignZero(v.dotProduct(n2));
+        Point p0 = ray.getHead();
+        double sx = p0.getX() - p1x, sy = p0.getY() - p1y, sz = p0.getZ() - p1z;
+        // first barycentric coordinate
+        double u = (sx * px + sy * py + sz * pz) * invDet;
+        if (alignZero(u) <= 0 || alignZero(u - 1) >= 0) return null;
 
-        // If the ray crosses between the normals (n1 and n2) in different directions, it doesn't intersect the triangle
-        if (vn1 * vn2 <= 0) return null;
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        // second barycentric coordinate
+        double w = (dx * qx + dy * qy + dz * qz) * invDet;
+        if (alignZero(w) <= 0 || alignZero(u + w - 1) >= 0) return null;
 
-        Vector n3 = v3.crossProduct(v1).normalize();
-        double vn3 = alignZero(v.dotProduct(n3));
-        if (vn1 * vn3 <= 0) return null;
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet);
+        if (t <= 0 || alignZero(maxDistance - t) <= 0) return null;
 
-        return List.of(new GeoPoint(this, intersectionsPoints.getFirst().point));
+        GeoPoint geoPoint = new GeoPoint(this, ray.getPoint(t), t, plane.getNormal());
+        geoPoint.u = u;
+        geoPoint.v = w;
+        return geoPoint;
     }
 }
@@ -0,0 +1,147 @@
+package primitives;
+
+/**
+ * A mutable sum of colors, used to combine many colors (e.g. the samples of a pixel or the
+ * contributions of the light sources) without creating a new {@link Color} for every addition.
+ * The added colors are valid already, so the components are not validated until the final color
+ * is created.<br/>
+ * An instance is not thread-safe and should be confined to a single thread.
+ */
+public class ColorAccumulator {
+    /**
+     * The accumulated RGB components
+     */
+    private double r, g, b;
+
+    /**
+     * The sums of the squares of the RGB components of the samples
+     */
+    private double rr, gg, bb;
+
+    /**
+     * The amount of colors that were added by {@link #add(Color)}
+     */
+    private int count = 0;
+
+    /**
+     * Constructs an empty (black) accumulator
+     */
+    public ColorAccumulator() {
+    }
+
+    /**
+     * Constructs an accumulator that starts from a color (which is not counted as a sample)
+     *
+     * @param color the initial color
+     */
+    public ColorAccumulator(Color color) {
+        r = color.rgb.d1;
+        g = color.rgb.d2;
+        b = color.rgb.d3;
+    }
+
+    /**
+     * Add a color (a sample) to the sum
+     *
+     * @param color the color to add
+     * @return this object
+     */
+    public ColorAccumulator add(Color color) {
+        r += color.rgb.d1;
+        g += color.rgb.d2;
+        b += color.rgb.d3;
+        rr += color.rgb.d1 * color.rgb.d1;
+        gg += color.rgb.d2 * color.rgb.d2;
+        bb += color.rgb.d3 * color.rgb.d3;
+        ++count;
+        return this;
+    }
+
+    /**
+     * Add a color scaled by a factor per rgb - the same as adding {@code color.scale(k)}
+     * but without creating the intermediate color. It is not counted as a sample.
+     *
+     * @param color the color to add
+     * @param k     the scale factor per rgb
+     * @return this object
+     */
+    public ColorAccumulator addScaled(Color color, Double3 k) {
+        r += color.rgb.d1 * k.d1;
+        g += color.rgb.d2 * k.d2;
+        b += color.rgb.d3 * k.d3;
+        return this;
+    }
+
+    /**
+     * Add a color scaled by two factors per rgb - the same as adding {@code color.scale(k1).scale(k2)}
+     * but without creating the intermediate colors. It is not counted as a sample.
+     *
+     * @param color the color to add
+     * @param k1    the first scale factor per rgb
+     * @param k2    the second scale factor per rgb
+     * @return this object
+     */
+    public ColorAccumulator addScaled(Color color, Double3 k1, Double3 k2) {
+        r += color.rgb.d1 * k1.d1 * k2.d1;
+        g += color.rgb.d2 * k1.d2 * k2.d2;
+        b += color.rgb.d3 * k1.d3 * k2.d3;
+        return this;
+    }
+
+    /**
+     * Scale the sum by a scalar
+     *
+     * @param k scale factor
+     * @return this object
+     */
+    public ColorAccumulator scale(double k) {
+        if (k < 0.0) throw new IllegalArgumentException("Can't scale a color by a negative number");
+        r *= k;
+        g *= k;
+        b *= k;
+        rr *= k * k;
+        gg *= k * k;
+        bb *= k * k;
+        return this;
+    }
+
+    /**
+     * Get the amount of colors that were added as samples
+     *
+     * @return the amount of samples
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Calculate the spread of the samples - the standard deviation of the most varying RGB component.
+     * The initial color and the scaled contributions are not samples, so the spread is meaningful
+     * only for an accumulator of samples.
+     *
+     * @return the standard deviation of the samples, 0 if less than two samples were added
+     */
+    public double deviation() {
+        if (count < 2) return 0;
+        double variance = Math.max(rr - r * r / count, Math.max(gg - g * g / count, bb - b * b / count)) / count;
+        return variance <= 0 ? 0 : Math.sqrt(variance);
+    }
+
+    /**
+     * Create the color of the sum
+     *
+     * @return the accumulated color
+     */
+    public Color toColor() {
+        return new Color(r, g, b);
+    }
+
+    /**
+     * Create the average color of the samples
+     *
+     * @return the average color, or black if no sample was added
+     */
+    public Color average() {
+        return count == 0 ? Color.BLACK : new Color(r / count, g / count, b / count);
+    }
+}
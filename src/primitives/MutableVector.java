@@ -0,0 +1,220 @@
+package primitives;
+
+/**
+ * A mutable triad of coordinates for the hot paths of the renderer.
+ * Unlike {@link Point} and {@link Vector}, the operations change the object in place and return it
+ * for chaining, so a whole chain of calculations allocates nothing.<br/>
+ * The zero vector is allowed here; it is validated only when converted to a {@link Vector}.
+ * An instance is not thread-safe and should be confined to a single thread (typically a local variable
+ * or a field of a per-thread object); the immutable classes remain the API for the user code.
+ */
+public final class MutableVector {
+    /**
+     * The coordinates
+     */
+    private double x, y, z;
+
+    /**
+     * Constructs a zero triad
+     */
+    public MutableVector() {
+    }
+
+    /**
+     * Constructs a triad with the coordinates of a point (or a vector)
+     *
+     * @param point the point to copy
+     */
+    public MutableVector(Point point) {
+        set(point);
+    }
+
+    /**
+     * Set the coordinates
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return this object
+     */
+    public MutableVector set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Set the coordinates to the coordinates of a point (or a vector)
+     *
+     * @param point the point to copy
+     * @return this object
+     */
+    public MutableVector set(Point point) {
+        return set(point.xyz.d1, point.xyz.d2, point.xyz.d3);
+    }
+
+    /**
+     * Set the coordinates to the coordinates of another triad
+     *
+     * @param other the triad to copy
+     * @return this object
+     */
+    public MutableVector set(MutableVector other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    /**
+     * Add the coordinates of a point (or a vector)
+     *
+     * @param point the point to add
+     * @return this object
+     */
+    public MutableVector add(Point point) {
+        x += point.xyz.d1;
+        y += point.xyz.d2;
+        z += point.xyz.d3;
+        return this;
+    }
+
+    /**
+     * Subtract the coordinates of a point (or a vector)
+     *
+     * @param point the point to subtract
+     * @return this object
+     */
+    public MutableVector subtract(Point point) {
+        x -= point.xyz.d1;
+        y -= point.xyz.d2;
+        z -= point.xyz.d3;
+        return this;
+    }
+
+    /**
+     * Subtract the coordinates of another triad
+     *
+     * @param other the triad to subtract
+     * @return this object
+     */
+    public MutableVector subtract(MutableVector other) {
+        x -= other.x;
+        y -= other.y;
+        z -= other.z;
+        return this;
+    }
+
+    /**
+     * Add a scaled vector - the same as adding {@code vector.scale(scalar)} but without creating it
+     *
+     * @param vector the vector to add
+     * @param scalar the scale factor of the vector
+     * @return this object
+     */
+    public MutableVector scaleAdd(Vector vector, double scalar) {
+        x += vector.xyz.d1 * scalar;
+        y += vector.xyz.d2 * scalar;
+        z += vector.xyz.d3 * scalar;
+        return this;
+    }
+
+    /**
+     * Scale the coordinates by a scalar
+     *
+     * @param scalar the scale factor
+     * @return this object
+     */
+    public MutableVector scale(double scalar) {
+        x *= scalar;
+        y *= scalar;
+        z *= scalar;
+        return this;
+    }
+
+    /**
+     * Normalize the triad to unit length
+     *
+     * @return this object
+     */
+    public MutableVector normalize() {
+        return scale(1 / length());
+    }
+
+    /**
+     * Computes the dot product with a vector
+     *
+     * @param vector the other vector
+     * @return the dot product
+     */
+    public double dotProduct(Vector vector) {
+        return x * vector.xyz.d1 + y * vector.xyz.d2 + z * vector.xyz.d3;
+    }
+
+    /**
+     * Computes the squared length
+     *
+     * @return the squared length
+     */
+    public double lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Computes the length
+     *
+     * @return the length
+     */
+    public double length() {
+        return Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * get the x-coordinate
+     *
+     * @return the x-coordinate
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * get the y-coordinate
+     *
+     * @return the y-coordinate
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * get the z-coordinate
+     *
+     * @return the z-coordinate
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Create an immutable point with the current coordinates
+     *
+     * @return the point
+     */
+    public Point toPoint() {
+        return new Point(x, y, z);
+    }
+
+    /**
+     * Create an immutable vector with the current coordinates
+     *
+     * @return the vector
+     * @throws IllegalArgumentException if the coordinates are zero
+     */
+    public Vector toVector() {
+        return new Vector(x, y, z);
+    }
+
+    @Override
+    public String toString() {
+        return "m(" + x + "," + y + "," + z + ")";
+    }
+}
@@ -28,6 +28,16 @@ public class Ray {
      */
     final private Vector direction;
 
+    /**
+     * The reciprocals of the direction components, used for fast slab tests against bounding boxes
+     */
+    final private double inverseX, inverseY, inverseZ;
+
+    /**
+     * The signs of the direction components - 1 if the component is negative, 0 otherwise
+     */
+    final private int signX, signY, signZ;
+
     /**
      * Constructs a Ray with the specified head point and direction vector.
      *
@@ -37,7 +47,14 @@ public class Ray {
      */
     public Ray(Point head, Vector direction) {
         this.head = head;
-        this.direction = direction.normalize();
+        // a direction that is already a unit vector (the usual case in the renderer) is not normalized again
+        this.direction = isZero(direction.lengthSquared() - 1) ? direction : direction.normalize();
+        inverseX = 1 / this.direction.getX();
+        inverseY = 1 / this.direction.getY();
+        inverseZ = 1 / this.direction.getZ();
+        signX = inverseX < 0 ? 1 : 0;
+        signY = inverseY < 0 ? 1 : 0;
+        signZ = inverseZ < 0 ? 1 : 0;
     }
 
     /**
@@ -51,8 +68,15 @@ public class Ray {
      */
     public Ray(Point p, Vector v, Vector n) {
         double res = v.dotProduct(n);
-        head = res > 0 ? p.add(n.scale(DELTA)) : p.add(n.scale(-DELTA));
+        double delta = res > 0 ? DELTA : -DELTA;
+        head = new Point(p.xyz.d1 + n.xyz.d1 * delta, p.xyz.d2 + n.xyz.d2 * delta, p.xyz.d3 + n.xyz.d3 * delta);
         this.direction = v;
+        inverseX = 1 / v.getX();
+        inverseY = 1 / v.getY();
+        inverseZ = 1 / v.getZ();
+        signX = inverseX < 0 ? 1 : 0;
+        signY = inverseY < 0 ? 1 : 0;
+        signZ = inverseZ < 0 ? 1 : 0;
     }
 
     /**
@@ -73,6 +97,60 @@ public class Ray {
         return direction;
     }
 
+    /**
+     * get the reciprocal of the x component of the direction
+     *
+     * @return 1 / direction.x (infinite for a zero component)
+     */
+    public double getInverseX() {
+        return inverseX;
+    }
+
+    /**
+     * get the reciprocal of the y component of the direction
+     *
+     * @return 1 / direction.y (infinite for a zero component)
+     */
+    public double getInverseY() {
+        return inverseY;
+    }
+
+    /**
+     * get the reciprocal of the z component of the direction
+     *
+     * @return 1 / direction.z (infinite for a zero component)
+     */
+    public double getInverseZ() {
+        return inverseZ;
+    }
+
+    /**
+     * get the sign of the x component of the direction
+     *
+     * @return 1 if the component is negative, 0 otherwise
+     */
+    public int getSignX() {
+        return signX;
+    }
+
+    /**
+     * get the sign of the y component of the direction
+     *
+     * @return 1 if the component is negative, 0 otherwise
+     */
+    public int getSignY() {
+        return signY;
+    }
+
+    /**
+     * get the sign of the z component of the direction
+     *
+     * @return 1 if the component is negative, 0 otherwise
+     */
+    public int getSignZ() {
+        return signZ;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -95,7 +173,9 @@ public class Ray {
      * If the distance is zero, the origin point of the ray.
      */
     public Point getPoint(double t) {
-        return isZero(t) ? this.head : this.head.add(direction.scale(t));
+        return isZero(t) ? this.head
+                : new Point(head.xyz.d1 + direction.xyz.d1 * t, head.xyz.d2 + direction.xyz.d2 * t,
+                head.xyz.d3 + direction.xyz.d3 * t);
     }
 
     /**
@@ -122,7 +202,7 @@ public class Ray {
         double smallest = Double.POSITIVE_INFINITY;
 
         for (GeoPoint geoPoint : listOfGeoPoints) {
-            double distance = geoPoint.point.distanceSquared(head);
+            double distance = geoPoint.getDistance(head);
             if (distance < smallest) {
                 closetGeoPoint = geoPoint;
                 smallest = distance;
@@ -1,6 +1,6 @@
 package primitives;
 
-import static java.lang.System.out;
+import static primitives.Util.isZero;
 
 /**
  * Represents a vector in a 3D space.
@@ -19,7 +19,7 @@ public class Vector extends Point {
      */
     public Vector(double x, double y, double z) {
         super(x, y, z);
-        if (xyz.equals(Double3.ZERO)) {
+        if (isZero(x) && isZero(y) && isZero(z)) {
             throw new IllegalArgumentException("The vector can't be zero vector");
         }
     }
@@ -32,7 +32,7 @@ public class Vector extends Point {
      */
     public Vector(Double3 double3) {
         super(double3);
-        if (xyz.equals(Double3.ZERO)) {
+        if (isZero(double3.d1) && isZero(double3.d2) && isZero(double3.d3)) {
             throw new IllegalArgumentException("The vector can't be zero vector");
         }
     }
@@ -0,0 +1,66 @@
+package renderer;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lens sampler of blue noise samples - random samples that keep away from each other.
+ * A pattern is generated once for each amount of samples by Mitchell's best candidate algorithm on the
+ * torus, and every pixel uses it shifted by a random offset (the shift keeps the distances on the torus).
+ */
+public class BlueNoiseLensSampler implements LensSampler {
+    /**
+     * The amount of candidates that are drawn for each sample of a pattern
+     */
+    private static final int CANDIDATES = 16;
+
+    /**
+     * The generated patterns by the amount of samples
+     */
+    private final Map<Integer, double[]> patterns = new ConcurrentHashMap<>();
+
+    @Override
+    public void sample(int col, int row, int count, double[] offsets) {
+        double[] pattern = patterns.computeIfAbsent(count, BlueNoiseLensSampler::generate);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double shiftX = random.nextDouble();
+        double shiftY = random.nextDouble();
+        for (int i = 0; i < count; ++i) {
+            offsets[2 * i] = HaltonLensSampler.wrap(pattern[2 * i] + shiftX) - 0.5;
+            offsets[2 * i + 1] = HaltonLensSampler.wrap(pattern[2 * i + 1] + shiftY) - 0.5;
+        }
+    }
+
+    /**
+     * Generate a blue noise pattern in the unit square - each sample is the candidate that is
+     * the farthest from the samples chosen before it
+     *
+     * @param count the amount of samples
+     * @return the pattern - the coordinates of the samples in the range [0,1)
+     */
+    private static double[] generate(int count) {
+        Random random = new Random(count); // the same pattern in every run
+        double[] pattern = new double[2 * count];
+        for (int i = 0; i < count; ++i) {
+            double bestDistance = -1;
+            for (int c = 0; c < CANDIDATES; ++c) {
+                double x = random.nextDouble(), y = random.nextDouble();
+                double distance = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < i; ++j) {
+                    double dx = Math.abs(x - pattern[2 * j]), dy = Math.abs(y - pattern[2 * j + 1]);
+                    dx = Math.min(dx, 1 - dx);
+                    dy = Math.min(dy, 1 - dy);
+                    distance = Math.min(distance, dx * dx + dy * dy);
+                }
+                if (distance > bestDistance) {
+                    bestDistance = distance;
+                    pattern[2 * i] = x;
+                    pattern[2 * i + 1] = y;
+                }
+            }
+        }
+        return pattern;
+    }
+}
@@ -1,6 +1,8 @@
 package renderer;
 
 import primitives.Color;
+import primitives.ColorAccumulator;
+import primitives.MutableVector;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -8,9 +10,20 @@ import primitives.Vector;
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
+import java.io.Serial;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleConsumer;
 
 /**
  * Represents a Camera with position, direction, and view plane parameters.
@@ -76,6 +89,35 @@ public class Camera implements Cloneable {
      */
     private int numOfAdditionalRays = 0;
 
+    /**
+     * The sampler of the aperture offsets of the depth of field rays
+     */
+    private LensSampler lensSampler = new RandomLensSampler();
+
+    /**
+     * The amount of the initial depth of field rays of a pixel in the adaptive depth of field,
+     * 0 to trace all the additional rays in every pixel
+     */
+    private int initialDofRays = 0;
+
+    /**
+     * The deviation of the colors of the initial depth of field rays (in color levels) above which
+     * the rest of the rays of the pixel are traced
+     */
+    private double dofThreshold = 0;
+
+    /**
+     * The maximal depth of the subdivision of a pixel in the adaptive super sampling,
+     * 0 to render without super sampling
+     */
+    private int superSamplingDepth = 0;
+
+    /**
+     * The deviation of the colors of the corners of a pixel (or a sub-pixel) in color levels
+     * above which it is subdivided
+     */
+    private double superSamplingThreshold = 0;
+
     /**
      * Use BVH for rendering
      */
@@ -100,6 +142,66 @@ public class Camera implements Cloneable {
      */
     private int threadsCount = 4;
 
+    /**
+     * The width and height in pixels of the tiles that are dispensed to the threads
+     */
+    private int tileSize = 16;
+
+    /**
+     * The order in which the tiles are dispensed to the threads
+     */
+    private TileOrder tileOrder = TileOrder.ROW_MAJOR;
+
+    /**
+     * The width and height in pixels of the packets whose rays are traced together,
+     * 0 to trace the pixels of a tile without packets
+     */
+    private int packetSize = 0;
+
+    /**
+     * Listener for the rendering progress percentage, may be null
+     */
+    private DoubleConsumer progressListener = null;
+
+    /**
+     * Parallelism of the work-stealing (fork/join) rendering, 0 for rendering with the threads count
+     */
+    private int forkJoinParallelism = 0;
+
+    /**
+     * Executor to submit the tiles to as separate tasks, may be null
+     */
+    private Executor executor = null;
+
+    /**
+     * Render each tile in its own virtual thread
+     */
+    private boolean usingVirtualThreads = false;
+
+    /**
+     * The checkpoint file of the render, null for rendering without a checkpoint
+     */
+    private Path checkpointFile = null;
+
+    /**
+     * The minimal time between two appends of the finished tiles to the checkpoint file in milliseconds
+     */
+    private long checkpointInterval = 0;
+
+    /**
+     * Resume the render from the finished tiles of the checkpoint file
+     */
+    private boolean resume = false;
+
+    /**
+     * The checkpoint of the current render, null for rendering without a checkpoint
+     */
+    private Checkpoint checkpoint = null;
+
+    /**
+     * The finished tiles restored from the checkpoint file that were not written yet, with their components
+     */
+    private Map<PixelManager.Tile, float[]> restoredTiles = null;
 
     /**
      * Builder class for constructing a Camera object.
@@ -228,6 +330,70 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Sets the sampler of the aperture for the depth of field rays
+         * (e.g. {@link JitteredLensSampler}, {@link HaltonLensSampler} or {@link BlueNoiseLensSampler}).
+         * The default is {@link RandomLensSampler}.
+         *
+         * @param lensSampler the lens sampler to set
+         * @return the Builder instance for chaining
+         */
+        public Builder setLensSampler(LensSampler lensSampler) {
+            this.camera.lensSampler = lensSampler;
+            return this;
+        }
+
+        /**
+         * Set the adaptive depth of field - the amount of the additional rays of each pixel is decided
+         * by the blur (circle of confusion) at the depth of its central hit (through the center of the lens):
+         * about one ray per pixel of the area of the blur, up to the number of rays. A pixel whose blur is
+         * smaller than a pixel gets only the central ray. A pixel with a bigger blur gets the initial rays first, and the rest of its rays only
+         * if their colors deviate above the threshold (e.g. not on a uniform background).<br/>
+         * The blur is estimated by the central hit only, so the blurred edge of a closer geometry over a sharp
+         * pixel may be sampled less than with the full number of rays.<br/>
+         * All the rays of a pixel are a single pattern of the lens sampler, whose first samples are the
+         * initial rays - all the samplers spread any prefix of their samples over the lens.
+         *
+         * @param initialRays the amount of the initial rays of a blurred pixel
+         * @param threshold   the deviation of the colors of the initial rays (in color levels) above which
+         *                    the rest of the rays are traced
+         * @return the Builder instance for chaining
+         * @throws IllegalArgumentException if the amount of the initial rays is not positive or the threshold is negative
+         */
+        public Builder setAdaptiveDepthOfField(int initialRays, double threshold) {
+            if (initialRays < 1)
+                throw new IllegalArgumentException("The amount of the initial rays must be positive");
+            if (threshold < 0)
+                throw new IllegalArgumentException("The threshold can't be negative");
+            camera.initialDofRays = initialRays;
+            camera.dofThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Set the adaptive super sampling (anti-aliasing) - the colors are sampled at the corners of the pixels,
+         * and a pixel whose corners deviate above the threshold is divided into four sub-pixels, recursively up to
+         * the maximal depth. The color of a (sub-)pixel is the average of its sub-pixels, or of its corners if it
+         * is not divided. The corners are shared by the neighbouring pixels of a tile, so a pixel that is not
+         * divided costs about one ray. The samples are primary rays only, so the super sampling can't be combined
+         * with the depth of field rays.
+         *
+         * @param maxDepth  the maximal depth of the subdivision (e.g. 3 - up to 8x8 sub-pixels), 0 to disable
+         * @param threshold the deviation of the colors of the corners (in color levels) above which a pixel
+         *                  is subdivided
+         * @return the Builder instance for chaining
+         * @throws IllegalArgumentException if the depth or the threshold is negative
+         */
+        public Builder setAdaptiveSuperSampling(int maxDepth, double threshold) {
+            if (maxDepth < 0)
+                throw new IllegalArgumentException("The depth of the super sampling can't be negative");
+            if (threshold < 0)
+                throw new IllegalArgumentException("The threshold can't be negative");
+            camera.superSamplingDepth = maxDepth;
+            camera.superSamplingThreshold = threshold;
+            return this;
+        }
+
         /**
          * Set the BVH usage
          *
@@ -262,6 +428,141 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set the usage of work-stealing (fork/join) rendering with a worker per available processor.
+         * The image is split recursively into regions, and idle workers steal regions from busy ones.
+         *
+         * @param use true to use fork/join rendering, false to render with the threads count
+         * @return the camera builder
+         */
+        public Builder useForkJoin(boolean use) {
+            camera.forkJoinParallelism = use ? Runtime.getRuntime().availableProcessors() : 0;
+            return this;
+        }
+
+        /**
+         * Set the usage of work-stealing (fork/join) rendering with a given amount of workers
+         *
+         * @param parallelism the amount of workers
+         * @return the camera builder
+         * @throws IllegalArgumentException if the parallelism is not positive
+         */
+        public Builder useForkJoin(int parallelism) {
+            if (parallelism <= 0)
+                throw new IllegalArgumentException("Parallelism must be greater than 0");
+            camera.forkJoinParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Set an executor that renders the tiles - each tile is submitted to it as a separate task.
+         * The executor is owned by the caller, so it may be shared by many cameras rendering concurrently.
+         *
+         * @param executor the executor for the tiles, or null to render with the threads count
+         * @return the camera builder
+         */
+        public Builder setExecutor(Executor executor) {
+            camera.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set the usage of a virtual thread per tile for rendering.
+         * Virtual threads are cheap, so many renders can run concurrently in one JVM
+         * without oversubscribing the platform threads.
+         *
+         * @param use true to render each tile in its own virtual thread, false otherwise
+         * @return the camera builder
+         */
+        public Builder useVirtualThreads(boolean use) {
+            camera.usingVirtualThreads = use;
+            return this;
+        }
+
+        /**
+         * Set the size of the square tiles that are dispensed to the rendering threads
+         *
+         * @param tileSize the width and height of a tile in pixels
+         * @return the camera builder
+         * @throws IllegalArgumentException if the tile size is not positive
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0)
+                throw new IllegalArgumentException("Tile size must be greater than 0");
+            camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Set the size of the square pixel packets. The tiles are divided into packets and the coherent
+         * rays of each packet are passed to the ray tracer as one packet, so that they can traverse
+         * the scene hierarchy together (e.g. 8 - packets of 8x8 pixels, 64 primary rays).
+         *
+         * @param packetSize the width and height of a packet in pixels, 0 to render without packets
+         * @return the camera builder
+         * @throws IllegalArgumentException if the packet size is negative
+         */
+        public Builder setPacketSize(int packetSize) {
+            if (packetSize < 0)
+                throw new IllegalArgumentException("Packet size can't be negative");
+            camera.packetSize = packetSize;
+            return this;
+        }
+
+        /**
+         * Set the order in which the tiles are dispensed to the rendering threads
+         *
+         * @param tileOrder the order of the tiles
+         * @return the camera builder
+         */
+        public Builder setTileOrder(TileOrder tileOrder) {
+            camera.tileOrder = tileOrder;
+            return this;
+        }
+
+        /**
+         * Set a listener for the rendering progress.
+         * The listener gets the percentage of rendered pixels after each tile, possibly from several threads.
+         *
+         * @param progressListener the progress listener, or null for no progress reports
+         * @return the camera builder
+         */
+        public Builder setProgressListener(DoubleConsumer progressListener) {
+            camera.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * Save the finished tiles of the render to a checkpoint file, so that an interrupted render
+         * can be resumed (see {@link #setResume(boolean)}). The finished tiles are appended to the file
+         * once in the given interval, and the file is deleted when the render is completed.
+         *
+         * @param file           the checkpoint file, or null for rendering without a checkpoint
+         * @param intervalMillis the minimal time between two appends to the file in milliseconds
+         * @return the camera builder
+         * @throws IllegalArgumentException if the interval is negative
+         */
+        public Builder setCheckpoint(Path file, long intervalMillis) {
+            if (intervalMillis < 0)
+                throw new IllegalArgumentException("The checkpoint interval can't be negative");
+            camera.checkpointFile = file;
+            camera.checkpointInterval = intervalMillis;
+            return this;
+        }
+
+        /**
+         * Resume an interrupted render - the tiles that were saved in the checkpoint file are restored
+         * instead of rendered, and the file is continued. If the file doesn't exist the render starts over.
+         * The render must have the same resolution, tile size and rendering mode as the interrupted one.
+         *
+         * @param resume whether to resume the render from the checkpoint file
+         * @return the camera builder
+         */
+        public Builder setResume(boolean resume) {
+            camera.resume = resume;
+            return this;
+        }
+
 
         /**
          * Builds the Camera object after validating all necessary fields are set.
@@ -293,6 +594,14 @@ public class Camera implements Cloneable {
 
             if (camera.threadsCount < 0)
                 throw new MissingResourceException("threads count can't be smaller than 0", "Camera", "threadsCount");
+            if (camera.tileOrder == null)
+                throw new MissingResourceException("Missing rendering data", "Camera", "tileOrder");
+            if (camera.lensSampler == null)
+                throw new MissingResourceException("Missing rendering data", "Camera", "lensSampler");
+            if (camera.superSamplingDepth > 0 && camera.numOfAdditionalRays > 0)
+                throw new IllegalArgumentException("Super sampling can't be combined with depth of field rays");
+            if (camera.resume && camera.checkpointFile == null)
+                throw new MissingResourceException("Missing rendering data", "Camera", "checkpointFile");
             try {
 
                 return (Camera) this.camera.clone();
@@ -335,8 +644,15 @@ public class Camera implements Cloneable {
 
     /**
      * Renders the image by casting rays for each pixel.
+     * The camera may render repeatedly - the acceleration structure of the scene is built
+     * by the first render and reused by the next ones as long as no geometries are added.
+     * The tiles are rendered by the first configured of: fork/join workers, virtual threads,
+     * the given executor, or the threads count.
+     * With a checkpoint file, the finished tiles are saved while rendering, and when resuming
+     * the tiles that were saved by the interrupted render are restored instead of rendered.
      *
      * @return The current Camera instance (for method chaining).
+     * @throws IllegalStateException if the checkpoint file can't be read or written
      */
     public Camera renderImage() {
         if (usingInBVH) rayTracer.scene.geometries.makeBVH();
@@ -345,24 +661,69 @@ public class Camera implements Cloneable {
         int nX = imageWriter.getNx();
         int nY = imageWriter.getNy();
 
-        pixelManager = new PixelManager(nY, nX);
+        pixelManager = new PixelManager(nY, nX, tileSize, tileOrder, progressListener);
 
-        if (threadsCount == 0)
-            for (int i = 0; i < nX; i++) {
-                for (int j = 0; j < nY; j++) {
-                    castRay(nX, nY, i, j);
-                }
+        if (checkpointFile != null) {
+            checkpoint = new Checkpoint(checkpointFile, checkpointInterval, nX, nY);
+            restoredTiles = new ConcurrentHashMap<>(checkpoint.open(resume));
+        }
+        try {
+            renderImage(nX, nY);
+        } catch (RuntimeException | Error e) {
+            // a failure to save the checkpoint must not hide the failure of the render
+            try {
+                closeCheckpoint();
+            } catch (RuntimeException closing) {
+                e.addSuppressed(closing);
             }
+            throw e;
+        }
+        closeCheckpoint();
+        return this;
+    }
+
+    /**
+     * Close the checkpoint of the render, if there is one. The checkpoint file is kept for resuming
+     * unless all the tiles were done.
+     *
+     * @throws IllegalStateException if the checkpoint file can't be written or deleted
+     */
+    private void closeCheckpoint() {
+        if (checkpoint == null) return;
+        try {
+            checkpoint.close(pixelManager.isDone());
+        } finally {
+            checkpoint = null;
+            restoredTiles = null;
+        }
+    }
+
+    /**
+     * Renders the tiles of the image by the configured kind of parallelism.
+     *
+     * @param nX The number of pixels in the x-direction.
+     * @param nY The number of pixels in the y-direction.
+     */
+    private void renderImage(int nX, int nY) {
+        if (forkJoinParallelism > 0) {
+            ForkJoinPool pool = new ForkJoinPool(forkJoinParallelism);
+            try {
+                pool.invoke(new RegionTask(nX, nY, new PixelManager.Tile(0, 0, nX, nY)));
+            } finally {
+                pool.shutdown();
+            }
+        } else if (usingVirtualThreads) {
+            try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+                renderTiles(nX, nY, virtualThreads);
+            }
+        } else if (executor != null)
+            renderTiles(nX, nY, executor);
+        else if (threadsCount == 0)
+            renderTiles(nX, nY);
         else { // see further... option 2
             var threads = new LinkedList<Thread>(); // list of threads
-            while (threadsCount-- > 0) // add appropriate number of threads
-                threads.add(new Thread(() -> { // add a thread with its code
-                    PixelManager.Pixel pixel; // current pixel(row,col)
-                    // allocate pixel(row,col) in loop until there are no more pixels
-                    while ((pixel = pixelManager.nextPixel()) != null)
-                        // cast ray through pixel (and color it – inside castRay)
-                        castRay(nX, nY, pixel.col(), pixel.row());
-                }));
+            for (int i = 0; i < threadsCount; i++) // add appropriate number of threads
+                threads.add(new Thread(() -> renderTiles(nX, nY))); // add a thread with its code
             // start all the threads
             for (var thread : threads) thread.start();
             // wait until all the threads have finished
@@ -371,26 +732,407 @@ public class Camera implements Cloneable {
             } catch (InterruptedException ignore) {
             }
         }
-
-        return this;
     }
 
     /**
-     * Casts multiple rays for a specific pixel to achieve depth of field and writes the average color to the image.
+     * Renders tiles allocated by the pixel manager until there are no more tiles.
      *
      * @param nX The number of pixels in the x-direction.
      * @param nY The number of pixels in the y-direction.
-     * @param j  The x-coordinate of the pixel.
-     * @param i  The y-coordinate of the pixel.
      */
-    private void castRay(int nX, int nY, int j, int i) {
-        List<Ray> rays = this.constructRays(nX, nY, j, i);
-        Color pixelColor = Color.BLACK;
-        for (Ray ray : rays) {
-            pixelColor = pixelColor.add(rayTracer.traceRay(ray));
+    private void renderTiles(int nX, int nY) {
+        PixelManager.Tile tile; // current tile
+        // allocate tile in loop until there are no more tiles
+        while ((tile = pixelManager.nextTile()) != null)
+            renderTile(nX, nY, tile);
+    }
+
+    /**
+     * Renders all the tiles of the pixel manager as separate tasks of an executor and waits for them.
+     *
+     * @param nX       The number of pixels in the x-direction.
+     * @param nY       The number of pixels in the y-direction.
+     * @param executor The executor to run the tasks.
+     */
+    private void renderTiles(int nX, int nY, Executor executor) {
+        var tasks = new LinkedList<CompletableFuture<Void>>();
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null) {
+            PixelManager.Tile task = tile;
+            tasks.add(CompletableFuture.runAsync(() -> renderTile(nX, nY, task), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Renders all the pixels of a tile and reports it to the pixel manager.
+     * A tile that was restored from the checkpoint file is written instead of rendered,
+     * and a rendered tile is saved to the checkpoint file.
+     *
+     * @param nX   The number of pixels in the x-direction.
+     * @param nY   The number of pixels in the y-direction.
+     * @param tile The tile to render.
+     */
+    private void renderTile(int nX, int nY, PixelManager.Tile tile) {
+        float[] restored = restoredTiles == null ? null : restoredTiles.remove(tile);
+        if (restored != null) {
+            int index = 0;
+            for (int i = tile.startRow(); i < tile.endRow(); i++)
+                for (int j = tile.startCol(); j < tile.endCol(); j++, index += 3)
+                    imageWriter.writePixel(j, i, new Color(restored[index], restored[index + 1], restored[index + 2]));
+        } else {
+            renderPixels(nX, nY, tile);
+            if (checkpoint != null) {
+                // the pixels are saved before the image writer is told that the tile is done,
+                // since a streaming image writer may release them
+                float[] components = new float[3 * tile.size()];
+                int index = 0;
+                for (int i = tile.startRow(); i < tile.endRow(); i++)
+                    for (int j = tile.startCol(); j < tile.endCol(); j++) {
+                        Color color = imageWriter.getPixel(j, i);
+                        components[index++] = (float) color.getRed();
+                        components[index++] = (float) color.getGreen();
+                        components[index++] = (float) color.getBlue();
+                    }
+                checkpoint.tileDone(tile, components);
+            }
+        }
+        imageWriter.tileDone(tile);
+        pixelManager.tileDone(tile);
+    }
+
+    /**
+     * Renders all the pixels of a tile by the configured sampling.
+     *
+     * @param nX   The number of pixels in the x-direction.
+     * @param nY   The number of pixels in the y-direction.
+     * @param tile The tile to render.
+     */
+    private void renderPixels(int nX, int nY, PixelManager.Tile tile) {
+        if (superSamplingDepth > 0) new SuperSampler(nX, nY, tile).render();
+        else if (packetSize == 0) renderPixels(nX, nY, tile, false);
+        else
+            for (int row = tile.startRow(); row < tile.endRow(); row += packetSize)
+                for (int col = tile.startCol(); col < tile.endCol(); col += packetSize)
+                    renderPixels(nX, nY, new PixelManager.Tile(col, row,
+                            Math.min(tile.endCol(), col + packetSize), Math.min(tile.endRow(), row + packetSize)), true);
+    }
+
+    /**
+     * Renders a block of pixels - the rays of all the pixels are traced together as one batch,
+     * so that the ray tracer may process them in stages.
+     *
+     * @param nX     The number of pixels in the x-direction.
+     * @param nY     The number of pixels in the y-direction.
+     * @param block  The block of pixels.
+     * @param packet Whether the block is a packet of coherent rays.
+     */
+    private void renderPixels(int nX, int nY, PixelManager.Tile block, boolean packet) {
+        if (initialDofRays > 0 && numOfAdditionalRays > 0) {
+            renderAdaptivePixels(nX, nY, block, packet);
+            return;
+        }
+
+        int[] pixelRays = new int[block.size()];
+        List<Ray> rays = new LinkedList<>();
+        int pixel = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++) {
+                List<Ray> raysOfPixel = constructRays(nX, nY, j, i);
+                pixelRays[pixel++] = raysOfPixel.size();
+                rays.addAll(raysOfPixel);
+            }
+        Ray[] batch = rays.toArray(new Ray[0]);
+        Color[] colors = packet ? rayTracer.tracePacket(batch) : rayTracer.traceRays(batch);
+
+        // the color of a pixel is the average color of its rays
+        pixel = 0;
+        int ray = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++) {
+                ColorAccumulator pixelColor = new ColorAccumulator();
+                for (int end = ray + pixelRays[pixel++]; ray < end; ++ray)
+                    pixelColor.add(colors[ray]);
+                imageWriter.writePixel(j, i, pixelColor.average());
+            }
+    }
+
+    /**
+     * Renders a block of pixels with the adaptive depth of field. The rays are traced in three batches:
+     * the central rays of all the pixels, whose hits decide the amounts of the rays of the pixels, then the
+     * initial rays of the blurred pixels, and then the rest of the rays of the pixels whose initial colors
+     * deviate. The central ray of a pixel goes from the center of the lens through the focal point of the
+     * pixel, so a sharp pixel has the same projection as the depth of field rays.
+     *
+     * @param nX     The number of pixels in the x-direction.
+     * @param nY     The number of pixels in the y-direction.
+     * @param block  The block of pixels.
+     * @param packet Whether the block is a packet of coherent rays.
+     */
+    private void renderAdaptivePixels(int nX, int nY, PixelManager.Tile block, boolean packet) {
+        Ray[] centrals = new Ray[block.size()];
+        int pixel = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++)
+                centrals[pixel++] = new Ray(p0, pixelCenter(nX, nY, j, i).scaleAdd(vTo, focalDistance)
+                        .subtract(p0).normalize().toVector());
+        // the tracer reports the distances of the central hits, so they are not intersected again
+        double[] hitDistances = new double[centrals.length];
+        Color[] colors = rayTracer.traceRays(centrals, packet, hitDistances);
+
+        // the initial rays of the blurred pixels
+        ColorAccumulator[] pixelColors = new ColorAccumulator[block.size()];
+        int[] budgets = new int[block.size()];
+        int[] pixelRays = new int[block.size()];
+        double[][] offsets = new double[block.size()][];
+        List<Ray> rays = new LinkedList<>();
+        pixel = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++, pixel++) {
+                pixelColors[pixel] = new ColorAccumulator();
+                pixelColors[pixel].add(colors[pixel]);
+                budgets[pixel] = lensRaysBudget(centrals[pixel], hitDistances[pixel], nX);
+                if (budgets[pixel] == 0) continue;
+                // the whole budget is sampled at once, so the initial and the rest of the rays
+                // together form a single pattern of the sampler
+                offsets[pixel] = new double[2 * budgets[pixel]];
+                lensSampler.sample(j, i, budgets[pixel], offsets[pixel]);
+                pixelRays[pixel] = Math.min(budgets[pixel], initialDofRays);
+                addLensRays(rays, pixelCenter(nX, nY, j, i), offsets[pixel], 0, pixelRays[pixel]);
+            }
+        addColors(pixelColors, pixelRays, rayTracer.traceRays(rays.toArray(new Ray[0])));
+
+        // the rest of the rays of the pixels whose initial colors deviate
+        rays.clear();
+        pixel = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++, pixel++) {
+                int initial = pixelRays[pixel];
+                pixelRays[pixel] = 0;
+                if (initial < budgets[pixel] && pixelColors[pixel].deviation() > dofThreshold) {
+                    addLensRays(rays, pixelCenter(nX, nY, j, i), offsets[pixel], initial, budgets[pixel]);
+                    pixelRays[pixel] = budgets[pixel] - initial;
+                }
+            }
+        addColors(pixelColors, pixelRays, rayTracer.traceRays(rays.toArray(new Ray[0])));
+
+        pixel = 0;
+        for (int i = block.startRow(); i < block.endRow(); i++)
+            for (int j = block.startCol(); j < block.endCol(); j++)
+                imageWriter.writePixel(j, i, pixelColors[pixel++].average());
+    }
+
+    /**
+     * Add the colors of a batch of rays to the colors of the pixels they were traced for
+     *
+     * @param pixelColors the colors of the pixels
+     * @param pixelRays   the amount of the rays of each pixel in the batch, in the order of the pixels
+     * @param colors      the colors of the rays of the batch
+     */
+    private static void addColors(ColorAccumulator[] pixelColors, int[] pixelRays, Color[] colors) {
+        int ray = 0;
+        for (int pixel = 0; pixel < pixelColors.length; ++pixel)
+            for (int end = ray + pixelRays[pixel]; ray < end; ++ray)
+                pixelColors[pixel].add(colors[ray]);
+    }
+
+    /**
+     * Decide the amount of the depth of field rays of a pixel by the blur at the depth of its central hit.
+     * The rays of a pixel converge at the focal plane, at the depth {@code F = distance + focal distance},
+     * where the pixels have the same size as on the view plane. A point at depth d (along the view direction)
+     * is blurred there into a circle of diameter {@code aperture * F * |1/d - 1/F|}, and about one ray is
+     * needed for each pixel of its area.
+     *
+     * @param central     the central ray of the pixel
+     * @param hitDistance the distance of the central hit from the camera, infinite if the central ray misses
+     * @param nX          the number of pixels in the x-direction
+     * @return the amount of the additional rays of the pixel, up to the number of rays
+     */
+    private int lensRaysBudget(Ray central, double hitDistance, int nX) {
+        // a ray that misses sees the background at an infinite depth
+        double inverseDepth = Double.isInfinite(hitDistance) ? 0
+                : 1 / (hitDistance * central.getDirection().dotProduct(vTo));
+        double focalDepth = distance + focalDistance;
+        double blur = apertureSize * focalDepth * Math.abs(inverseDepth - 1 / focalDepth) * nX / width;
+        return blur < 1 ? 0 : (int) Math.min(numOfAdditionalRays, Math.ceil(blur * blur));
+    }
+
+    /**
+     * Adaptive super sampling of a tile. The samples are kept in a lattice of the finest subdivision of
+     * the tile, so every sample is traced once even if it is shared by neighbouring (sub-)pixels.
+     * The lattice coordinates of a pixel corner are its pixel coordinates (in the tile) multiplied by the step.
+     */
+    private class SuperSampler {
+        /**
+         * The number of pixels in the x-direction
+         */
+        private final int nX;
+        /**
+         * The number of pixels in the y-direction
+         */
+        private final int nY;
+        /**
+         * The tile to render
+         */
+        private final PixelManager.Tile tile;
+        /**
+         * The amount of lattice cells along the side of a pixel
+         */
+        private final int step;
+        /**
+         * The traced samples by the lattice coordinates (row, column), null for a sample that was not traced
+         */
+        private final Color[][] lattice;
+
+        /**
+         * Constructs a super sampler of a tile
+         *
+         * @param nX   the number of pixels in the x-direction
+         * @param nY   the number of pixels in the y-direction
+         * @param tile the tile to render
+         */
+        SuperSampler(int nX, int nY, PixelManager.Tile tile) {
+            this.nX = nX;
+            this.nY = nY;
+            this.tile = tile;
+            step = 1 << superSamplingDepth;
+            lattice = new Color[(tile.endRow() - tile.startRow()) * step + 1][(tile.endCol() - tile.startCol()) * step + 1];
+        }
+
+        /**
+         * Render the pixels of the tile. The corners of all the pixels are traced together as one batch.
+         */
+        void render() {
+            int rows = tile.endRow() - tile.startRow();
+            int cols = tile.endCol() - tile.startCol();
+            Ray[] corners = new Ray[(rows + 1) * (cols + 1)];
+            for (int y = 0, corner = 0; y <= rows; ++y)
+                for (int x = 0; x <= cols; ++x)
+                    corners[corner++] = constructRay(x * step, y * step);
+            Color[] colors = rayTracer.traceRays(corners);
+            for (int y = 0, corner = 0; y <= rows; ++y)
+                for (int x = 0; x <= cols; ++x)
+                    lattice[y * step][x * step] = colors[corner++];
+
+            for (int y = 0; y < rows; ++y)
+                for (int x = 0; x < cols; ++x)
+                    imageWriter.writePixel(tile.startCol() + x, tile.startRow() + y,
+                            sampleCell(x * step, y * step, step));
+        }
+
+        /**
+         * Calculate the color of a (sub-)pixel, subdividing it while its corners deviate
+         *
+         * @param x    the lattice column of the top-left corner
+         * @param y    the lattice row of the top-left corner
+         * @param size the side of the (sub-)pixel in lattice cells
+         * @return the color of the (sub-)pixel
+         */
+        private Color sampleCell(int x, int y, int size) {
+            ColorAccumulator corners = new ColorAccumulator()
+                    .add(sample(x, y)).add(sample(x + size, y))
+                    .add(sample(x, y + size)).add(sample(x + size, y + size));
+            if (size == 1 || corners.deviation() <= superSamplingThreshold) return corners.average();
+
+            int half = size / 2;
+            return new ColorAccumulator()
+                    .add(sampleCell(x, y, half)).add(sampleCell(x + half, y, half))
+                    .add(sampleCell(x, y + half, half)).add(sampleCell(x + half, y + half, half))
+                    .average();
+        }
+
+        /**
+         * Get the color of a lattice sample, tracing it if it was not traced yet
+         *
+         * @param x the lattice column
+         * @param y the lattice row
+         * @return the color of the sample
+         */
+        private Color sample(int x, int y) {
+            Color color = lattice[y][x];
+            if (color == null) lattice[y][x] = color = rayTracer.traceRay(constructRay(x, y));
+            return color;
+        }
+
+        /**
+         * Construct the ray through a lattice point on the view plane
+         *
+         * @param x the lattice column
+         * @param y the lattice row
+         * @return the ray from the camera position through the point
+         */
+        private Ray constructRay(int x, int y) {
+            // the lattice point in pixel units from the top-left corner of the view plane
+            double xJ = (nX / 2.0 - tile.startCol() - (double) x / step) * (width / nX);
+            double yI = (nY / 2.0 - tile.startRow() - (double) y / step) * (height / nY);
+            MutableVector direction = new MutableVector().scaleAdd(vTo, distance);
+            if (!isZero(xJ))
+                direction.scaleAdd(vRight, xJ);
+            if (!isZero(yI))
+                direction.scaleAdd(vUp, yI);
+            return new Ray(p0, direction.normalize().toVector());
+        }
+    }
+
+    /**
+     * Fork/join task that renders a region of the image.
+     * A region bigger than a tile is split in two along its longer side, and the halves
+     * are forked so that idle workers can steal them.
+     */
+    private class RegionTask extends RecursiveAction {
+        /**
+         * The serialization version of the task - a task is never serialized
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+        /**
+         * The number of pixels in the x-direction
+         */
+        private final int nX;
+        /**
+         * The number of pixels in the y-direction
+         */
+        private final int nY;
+        /**
+         * The region of the image to render
+         */
+        private final transient PixelManager.Tile region;
+
+        /**
+         * Constructs a task for rendering a region of the image
+         *
+         * @param nX     the number of pixels in the x-direction
+         * @param nY     the number of pixels in the y-direction
+         * @param region the region to render
+         */
+        RegionTask(int nX, int nY, PixelManager.Tile region) {
+            this.nX = nX;
+            this.nY = nY;
+            this.region = region;
+        }
+
+        @Override
+        protected void compute() {
+            int width = region.endCol() - region.startCol();
+            int height = region.endRow() - region.startRow();
+            if (width <= tileSize && height <= tileSize) {
+                renderTile(nX, nY, region);
+                return;
+            }
+            if (width >= height) {
+                int middle = region.startCol() + width / 2;
+                invokeAll(new RegionTask(nX, nY,
+                                new PixelManager.Tile(region.startCol(), region.startRow(), middle, region.endRow())),
+                        new RegionTask(nX, nY,
+                                new PixelManager.Tile(middle, region.startRow(), region.endCol(), region.endRow())));
+            } else {
+                int middle = region.startRow() + height / 2;
+                invokeAll(new RegionTask(nX, nY,
+                                new PixelManager.Tile(region.startCol(), region.startRow(), region.endCol(), middle)),
+                        new RegionTask(nX, nY,
+                                new PixelManager.Tile(region.startCol(), middle, region.endCol(), region.endRow())));
+            }
         }
-        pixelColor = pixelColor.reduce(rays.size());
-        imageWriter.writePixel(j, i, pixelColor);
     }
 
     /**
@@ -404,32 +1146,77 @@ public class Camera implements Cloneable {
      */
     public List<Ray> constructRays(int nX, int nY, int j, int i) {
         List<Ray> rays = new LinkedList<>();
+        // The intermediate points and vectors are calculated in place, only the rays themselves are created
+        MutableVector pIJ = pixelCenter(nX, nY, j, i);
+
+        // Primary ray from the camera position to the pixel on the view plane
+        MutableVector direction = new MutableVector().set(pIJ).subtract(p0);
+        rays.add(new Ray(p0, direction.normalize().toVector()));
+
+        // Generate additional rays for depth of field effect
+        addLensRays(rays, pIJ, j, i, numOfAdditionalRays);
+        return rays;
+    }
+
+    /**
+     * Calculate the center of a pixel on the view plane
+     *
+     * @param nX number of horizontal pixels
+     * @param nY number of vertical pixels
+     * @param j  the column index of the pixel
+     * @param i  the row index of the pixel
+     * @return the center of the pixel
+     */
+    private MutableVector pixelCenter(int nX, int nY, int j, int i) {
         // Calculate distance on x,y axes to the designated point
-        Point pIJ = p0.add(vTo.scale(distance));
+        MutableVector pIJ = new MutableVector(p0).scaleAdd(vTo, distance);
         double yI = (((nY - 1) / 2.0) - i) * (height / nY);
         double xJ = (((nX - 1) / 2.0) - j) * (width / nX);
-        // Avoiding creation of zero vector (which is unnecessary anyway)
         if (!isZero(xJ))
-            pIJ = pIJ.add(vRight.scale(xJ));
+            pIJ.scaleAdd(vRight, xJ);
         if (!isZero(yI))
-            pIJ = pIJ.add(vUp.scale(yI));
+            pIJ.scaleAdd(vUp, yI);
+        return pIJ;
+    }
 
-        // Primary ray from the camera position to the pixel on the view plane
-        Ray primaryRay = new Ray(p0, pIJ.subtract(p0));
-        rays.add(primaryRay);
+    /**
+     * Add depth of field rays of a pixel - rays from points on the lens aperture through the focal point of the pixel
+     *
+     * @param rays  the list to add the rays to
+     * @param pIJ   the center of the pixel on the view plane (it is moved to the focal point)
+     * @param j     the column index of the pixel
+     * @param i     the row index of the pixel
+     * @param count the amount of rays to add
+     */
+    private void addLensRays(List<Ray> rays, MutableVector pIJ, int j, int i, int count) {
+        if (count == 0) return;
+        // Sample the points on the lens aperture
+        double[] offsets = new double[2 * count];
+        lensSampler.sample(j, i, count, offsets);
+        addLensRays(rays, pIJ, offsets, 0, count);
+    }
 
-        // Generate additional rays for depth of field effect
-        for (int k = 0; k < numOfAdditionalRays; k++) {// Number of additional rays
-            // Generate random points on the lens aperture
-            double randomX = (Math.random() - 0.5) * apertureSize;
-            double randomY = (Math.random() - 0.5) * apertureSize;
-            Point pointLens = p0.add(vRight.scale(randomX)).add(vUp.scale(randomY));
+    /**
+     * Add depth of field rays of a pixel through given points of the lens aperture
+     *
+     * @param rays    the list to add the rays to
+     * @param pIJ     the center of the pixel on the view plane (it is moved to the focal point)
+     * @param offsets the aperture offsets of the samples of the pixel, as produced by the lens sampler
+     * @param from    the index of the first sample to add
+     * @param to      the index after the last sample to add
+     */
+    private void addLensRays(List<Ray> rays, MutableVector pIJ, double[] offsets, int from, int to) {
+        if (from == to) return;
+        MutableVector focalPoint = pIJ.scaleAdd(vTo, focalDistance);
+        MutableVector pointLens = new MutableVector();
+        MutableVector direction = new MutableVector();
+        for (int k = from; k < to; k++) {
+            pointLens.set(p0).scaleAdd(vRight, offsets[2 * k] * apertureSize)
+                    .scaleAdd(vUp, offsets[2 * k + 1] * apertureSize);
             // Calculate the direction towards the focal plane
-            Vector direction = pIJ.add(vTo.scale(focalDistance)).subtract(pointLens);
-            rays.add(new Ray(pointLens, direction));
+            direction.set(focalPoint).subtract(pointLens);
+            rays.add(new Ray(pointLens.toPoint(), direction.normalize().toVector()));
         }
-
-        return rays;
     }
 
     /**
@@ -0,0 +1,227 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The checkpoint file of a render - a log of the finished tiles with the components of their pixels,
+ * so an interrupted render can be resumed without rendering the finished tiles again.<br/>
+ * The file starts with a header (magic number, version and the image resolution), followed by a record
+ * for each finished tile: its bounds and the RGB components of its pixels as floats. The finished tiles
+ * are collected in memory and appended to the file (and forced to the disk) once in an interval, so the
+ * file is never rewritten; a record that was cut by a crash (or is corrupted) and the records after it
+ * are ignored when the render is resumed.
+ */
+class Checkpoint {
+    /**
+     * A finished tile waiting to be appended to the file
+     *
+     * @param tile       the tile
+     * @param components the RGB components of the pixels of the tile, row by row
+     */
+    private record TileRecord(PixelManager.Tile tile, float[] components) {
+    }
+
+    /**
+     * The magic number at the start of a checkpoint file
+     */
+    private static final int MAGIC = 0x52544350;
+    /**
+     * The version of the format of the file
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the header in bytes
+     */
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * The path of the file
+     */
+    private final Path file;
+    /**
+     * The minimal time between two appends to the file in nanoseconds
+     */
+    private final long interval;
+    /**
+     * The amount of pixels in a row of the image
+     */
+    private final int nX;
+    /**
+     * The amount of rows of the image
+     */
+    private final int nY;
+    /**
+     * The finished tiles that were not appended yet
+     */
+    private final List<TileRecord> pending = new LinkedList<>();
+    /**
+     * The channel of the file, null when it is closed
+     */
+    private FileChannel channel = null;
+    /**
+     * The time of the last append to the file
+     */
+    private long lastAppend;
+
+    /**
+     * Constructs the checkpoint of a render
+     *
+     * @param file           the path of the file
+     * @param intervalMillis the minimal time between two appends to the file in milliseconds
+     * @param nX             the amount of pixels in a row of the image
+     * @param nY             the amount of rows of the image
+     */
+    Checkpoint(Path file, long intervalMillis, int nX, int nY) {
+        this.file = file;
+        this.interval = intervalMillis * 1_000_000;
+        this.nX = nX;
+        this.nY = nY;
+    }
+
+    /**
+     * Open the file for the render
+     *
+     * @param resume whether to continue an existing file, or to start a new file
+     * @return the finished tiles of the existing file with their components (empty for a new file)
+     * @throws IllegalStateException if the file can't be read or written, or it is of a different image
+     */
+    synchronized Map<PixelManager.Tile, float[]> open(boolean resume) {
+        Map<PixelManager.Tile, float[]> tiles = new HashMap<>();
+        try {
+            if (resume && Files.exists(file)) {
+                long end = load(tiles);
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.truncate(end); // a record that was cut is overwritten
+                channel.position(end);
+            } else {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE);
+                ImageWriter.writeFully(channel,
+                        ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(nX).putInt(nY).flip());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't open the checkpoint " + file, e);
+        }
+        lastAppend = System.nanoTime();
+        return tiles;
+    }
+
+    /**
+     * Read the finished tiles of the file
+     *
+     * @param tiles the map to fill with the tiles and their components
+     * @return the position after the last complete record
+     * @throws IOException if the file can't be read
+     */
+    private long load(Map<PixelManager.Tile, float[]> tiles) throws IOException {
+        ByteBuffer data;
+        // the file is read rather than mapped, since a mapped file can't be truncated on some systems
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = input.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalStateException("The checkpoint " + file + " is too big");
+            data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining())
+                if (input.read(data) < 0) break;
+            data.flip();
+        }
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION)
+            throw new IllegalStateException("Not a checkpoint file " + file);
+        if (data.getInt() != nX || data.getInt() != nY)
+            throw new IllegalStateException("The checkpoint " + file + " is of an image of a different resolution");
+
+        // the records are read up to the first one that was cut or is corrupted
+        while (data.remaining() >= 4 * Integer.BYTES) {
+            int start = data.position();
+            PixelManager.Tile tile = new PixelManager.Tile(data.getInt(), data.getInt(), data.getInt(), data.getInt());
+            if (!isValid(tile) || data.remaining() / (3L * Float.BYTES) < tile.size()) {
+                data.position(start);
+                break;
+            }
+            float[] components = new float[3 * tile.size()];
+            data.asFloatBuffer().get(components);
+            data.position(data.position() + components.length * Float.BYTES);
+            tiles.put(tile, components);
+        }
+        return data.position();
+    }
+
+    /**
+     * Check whether the bounds of a tile read from the file are inside the image
+     *
+     * @param tile the tile
+     * @return true if the tile is a non-empty part of the image
+     */
+    private boolean isValid(PixelManager.Tile tile) {
+        return 0 <= tile.startCol() && tile.startCol() < tile.endCol() && tile.endCol() <= nX
+                && 0 <= tile.startRow() && tile.startRow() < tile.endRow() && tile.endRow() <= nY;
+    }
+
+    /**
+     * Add a finished tile, and append the finished tiles to the file if the interval has passed
+     *
+     * @param tile       the tile
+     * @param components the RGB components of the pixels of the tile, row by row
+     * @throws IllegalStateException if the file can't be written
+     */
+    synchronized void tileDone(PixelManager.Tile tile, float[] components) {
+        pending.add(new TileRecord(tile, components));
+        if (System.nanoTime() - lastAppend >= interval) append(channel);
+    }
+
+    /**
+     * Append the finished tiles to the file and force them to the disk
+     *
+     * @param output the channel of the file
+     * @throws IllegalStateException if the file can't be written
+     */
+    private void append(FileChannel output) {
+        try {
+            for (TileRecord record : pending) {
+                PixelManager.Tile tile = record.tile();
+                ByteBuffer buffer = ByteBuffer.allocate(4 * Integer.BYTES + record.components().length * Float.BYTES)
+                        .putInt(tile.startCol()).putInt(tile.startRow()).putInt(tile.endCol()).putInt(tile.endRow());
+                buffer.asFloatBuffer().put(record.components());
+                ImageWriter.writeFully(output, buffer.position(0));
+            }
+            output.force(false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't write the checkpoint " + file, e);
+        }
+        pending.clear();
+        lastAppend = System.nanoTime();
+    }
+
+    /**
+     * Close the file after the render
+     *
+     * @param finished whether the render was finished - then the file is deleted, otherwise
+     *                 the remaining finished tiles are appended to it for resuming the render
+     * @throws IllegalStateException if the file can't be written or deleted
+     */
+    synchronized void close(boolean finished) {
+        if (channel == null) return;
+        // the file is closed even if the remaining tiles can't be appended
+        try (FileChannel output = channel) {
+            if (!finished) append(output);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't close the checkpoint " + file, e);
+        } finally {
+            channel = null;
+        }
+        try {
+            if (finished) Files.delete(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't delete the checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package renderer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lens sampler of the low-discrepancy Halton sequence (bases 2 and 3). The sequence is shifted
+ * toroidally by a random offset per pixel (Cranley-Patterson rotation), so neighbouring pixels do not
+ * repeat the same pattern, while the samples of each pixel keep the even coverage of the sequence.
+ */
+public class HaltonLensSampler implements LensSampler {
+
+    @Override
+    public void sample(int col, int row, int count, double[] offsets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double shiftX = random.nextDouble();
+        double shiftY = random.nextDouble();
+        for (int i = 0; i < count; ++i) {
+            offsets[2 * i] = wrap(radicalInverse(i + 1, 2) + shiftX) - 0.5;
+            offsets[2 * i + 1] = wrap(radicalInverse(i + 1, 3) + shiftY) - 0.5;
+        }
+    }
+
+    /**
+     * Mirror the digits of a number around the radix point (the van der Corput sequence in the base)
+     *
+     * @param index the number
+     * @param base  the base of the digits
+     * @return the radical inverse of the number in the range [0,1)
+     */
+    static double radicalInverse(int index, int base) {
+        double result = 0;
+        double fraction = 1.0 / base;
+        for (; index > 0; index /= base, fraction /= base)
+            result += (index % base) * fraction;
+        return result;
+    }
+
+    /**
+     * Wrap a value in the range [0,2) into the range [0,1)
+     *
+     * @param value the value
+     * @return the fractional part of the value
+     */
+    static double wrap(double value) {
+        return value >= 1 ? value - 1 : value;
+    }
+}
@@ -1,13 +1,15 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
-
 import primitives.Color;
 
 /**
@@ -35,9 +37,28 @@ public class ImageWriter {
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
     /**
-     * Image generation buffer (the matrix of the pixels)
+     * The frame buffer - the RGB components of the pixels row by row, without the upper limit of 255.
+     * The rendering threads write their pixels directly, and the components are converted to 8 bits
+     * only when the image is written
+     */
+    private final float[] pixels;
+    /**
+     * The factor that the components are scaled by when they are converted to 8 bits
      */
-    private BufferedImage image;
+    private double exposure = 1;
+
+    /**
+     * The magic number of an OpenEXR file
+     */
+    private static final int EXR_MAGIC = 20000630;
+    /**
+     * The version field of a single-part scanline OpenEXR file
+     */
+    private static final int EXR_VERSION = 2;
+    /**
+     * The OpenEXR pixel type of 32 bits floats
+     */
+    private static final int EXR_FLOAT = 2;
     /**
      * image file name, not including the file extension '.png'
      */
@@ -57,11 +78,23 @@ public class ImageWriter {
      * @param nY        amount of pixels by height
      */
     public ImageWriter(String imageName, int nX, int nY) {
+        this(imageName, nX, nY, true);
+    }
+
+    /**
+     * Image Writer constructor for the writers that keep the pixels by themselves
+     *
+     * @param imageName   the name of png file
+     * @param nX          amount of pixels by Width
+     * @param nY          amount of pixels by height
+     * @param frameBuffer whether to allocate the frame buffer of the whole image
+     */
+    ImageWriter(String imageName, int nX, int nY, boolean frameBuffer) {
         this.imageName = imageName;
         this.nX = nX;
         this.nY = nY;
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        pixels = frameBuffer ? new float[3 * nX * nY] : null;
     }
 
     // ***************** Getters/Setters ********************** //
@@ -84,6 +117,32 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Set the exposure - the factor that the colors are scaled by when the image is written
+     * (the components above 255 after the scaling are still limited to 255)
+     *
+     * @param exposure the exposure factor, 1 to write the colors as they are
+     * @return the image writer
+     * @throws IllegalArgumentException if the exposure is not positive
+     */
+    public ImageWriter setExposure(double exposure) {
+        if (exposure <= 0) throw new IllegalArgumentException("The exposure must be positive");
+        this.exposure = exposure;
+        return this;
+    }
+
+    /**
+     * Get the color of a pixel in the frame buffer, without the upper limit of 255
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the color of the pixel
+     */
+    public Color getPixel(int xIndex, int yIndex) {
+        int index = 3 * (yIndex * nX + xIndex);
+        return new Color(pixels[index], pixels[index + 1], pixels[index + 2]);
+    }
+
     // ***************** Operations ******************** //
 
     /**
@@ -92,12 +151,79 @@ public class ImageWriter {
      * pixel color matrix in the directory of the project
      */
     public void writeToImage() {
-        try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+        // the rows are converted from the frame buffer by the encoder, band by band in parallel
+        try (FileChannel channel = openImageFile(".png")) {
+            new PngEncoder(nX, nY, this::getRow).write(channel);
+        } catch (IOException e) {
+            throw ioError(e);
+        }
+    }
+
+    /**
+     * Write the frame buffer into a PFM (portable float map) file in the directory of the project.
+     * The components are written as they are - without the limit of 255 and without the exposure,
+     * as little-endian floats, row by row from the bottom row up.
+     */
+    public void writeToPfm() {
+        try (FileChannel channel = openImageFile(".pfm")) {
+            writeFully(channel, ByteBuffer.wrap(("PF\n" + nX + " " + nY + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII)));
+            // the rows of the frame buffer are already in the order of the pixels of a PFM row
+            ByteBuffer row = ByteBuffer.allocateDirect(3 * nX * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = nY - 1; y >= 0; --y) {
+                row.clear();
+                row.asFloatBuffer().put(pixels, 3 * nX * y, 3 * nX);
+                writeFully(channel, row);
+            }
+        } catch (IOException e) {
+            throw ioError(e);
+        }
+    }
+
+    /**
+     * Write the frame buffer into an OpenEXR file in the directory of the project - an uncompressed scanline
+     * image of 32 bits float B, G and R channels (without the limit of 255 and without the exposure).
+     * Each scanline is a chunk of its own, with the channels stored one after the other.
+     */
+    public void writeToExr() {
+        try (FileChannel channel = openImageFile(".exr")) {
+            ByteBuffer header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(EXR_MAGIC).putInt(EXR_VERSION);
+            // the channels are listed (and stored) in alphabetical order
+            putExrAttribute(header, "channels", "chlist", 3 * 18 + 1);
+            for (String name : new String[]{"B", "G", "R"})
+                header.put(name.getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                        .putInt(EXR_FLOAT).putInt(0) // pLinear and the reserved bytes
+                        .putInt(1).putInt(1); // no sub-sampling
+            header.put((byte) 0);
+            putExrAttribute(header, "compression", "compression", 1).put((byte) 0);
+            putExrAttribute(header, "dataWindow", "box2i", 16).putInt(0).putInt(0).putInt(nX - 1).putInt(nY - 1);
+            putExrAttribute(header, "displayWindow", "box2i", 16).putInt(0).putInt(0).putInt(nX - 1).putInt(nY - 1);
+            putExrAttribute(header, "lineOrder", "lineOrder", 1).put((byte) 0); // increasing y
+            putExrAttribute(header, "pixelAspectRatio", "float", 4).putFloat(1);
+            putExrAttribute(header, "screenWindowCenter", "v2f", 8).putFloat(0).putFloat(0);
+            putExrAttribute(header, "screenWindowWidth", "float", 4).putFloat(1);
+            header.put((byte) 0);
+            writeFully(channel, header.flip());
+
+            // the offsets of the scanlines from the start of the file
+            int lineSize = 2 * Integer.BYTES + 3 * nX * Float.BYTES;
+            ByteBuffer offsets = ByteBuffer.allocateDirect(nY * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long offset = header.limit() + (long) nY * Long.BYTES;
+            for (int y = 0; y < nY; ++y, offset += lineSize)
+                offsets.putLong(offset);
+            writeFully(channel, offsets.flip());
+
+            ByteBuffer line = ByteBuffer.allocateDirect(lineSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = 0; y < nY; ++y) {
+                line.clear();
+                line.putInt(y).putInt(lineSize - 2 * Integer.BYTES);
+                for (int channelIndex = 2; channelIndex >= 0; --channelIndex) // B, G, R
+                    for (int index = 3 * nX * y + channelIndex, end = index + 3 * nX; index < end; index += 3)
+                        line.putFloat(pixels[index]);
+                writeFully(channel, line.flip());
+            }
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "I/O error", e);
-            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+            throw ioError(e);
         }
     }
 
@@ -110,7 +236,141 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        int index = 3 * (yIndex * nX + xIndex);
+        pixels[index] = toFloat(color.getRed());
+        pixels[index + 1] = toFloat(color.getGreen());
+        pixels[index + 2] = toFloat(color.getBlue());
+    }
+
+    /**
+     * Add a color to the color of a pixel in the frame buffer, e.g. to accumulate the samples of
+     * progressive rendering passes (the sum may be scaled back by {@link #setExposure(double)}).
+     * The sum is rounded toward zero as in {@link #writePixel(int, int, Color)}, so a color added to a
+     * cleared pixel is stored exactly as if it was written.
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  the color to add
+     */
+    public void addToPixel(int xIndex, int yIndex, Color color) {
+        int index = 3 * (yIndex * nX + xIndex);
+        pixels[index] = toFloat(pixels[index] + color.getRed());
+        pixels[index + 1] = toFloat(pixels[index + 1] + color.getGreen());
+        pixels[index + 2] = toFloat(pixels[index + 2] + color.getBlue());
+    }
+
+    /**
+     * Notify that all the pixels of a tile were written (called by the camera from the rendering thread
+     * of the tile). The frame buffer keeps all the pixels until the image is written, so nothing is done.
+     *
+     * @param tile the written tile
+     */
+    void tileDone(PixelManager.Tile tile) {
+    }
+
+    /**
+     * Get the path of the image file with an extension
+     *
+     * @param extension the extension of the file, including the dot
+     * @return the path of the file in the images directory
+     */
+    private Path imagePath(String extension) {
+        return Path.of(FOLDER_PATH, imageName + extension);
+    }
+
+    /**
+     * Open the image file with an extension for writing, replacing an existing file
+     *
+     * @param extension the extension of the file, including the dot
+     * @return the channel of the file
+     * @throws IOException if the file can't be opened
+     */
+    FileChannel openImageFile(String extension) throws IOException {
+        return FileChannel.open(imagePath(extension),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write all the remaining bytes of a buffer into a channel
+     *
+     * @param channel the channel
+     * @param buffer  the buffer, ready for reading
+     * @throws IOException if the writing fails
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Put the name, the type and the size of an OpenEXR header attribute
+     *
+     * @param header the header buffer
+     * @param name   the name of the attribute
+     * @param type   the type of the attribute
+     * @param size   the size of the value of the attribute in bytes
+     * @return the header buffer, ready for the value of the attribute
+     */
+    private static ByteBuffer putExrAttribute(ByteBuffer header, String name, String type, int size) {
+        return header.put(name.getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                .put(type.getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                .putInt(size);
+    }
+
+    /**
+     * Log an I/O failure of writing the image
+     *
+     * @param e the I/O exception
+     * @return the exception to throw
+     */
+    IllegalStateException ioError(IOException e) {
+        logger.log(Level.SEVERE, "I/O error", e);
+        return new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+    }
+
+    /**
+     * Convert a color component to a float rounded toward zero, so the truncation to 8 bits
+     * gives the same level as the original component (e.g. 254.99999999 is not rounded up to 255)
+     *
+     * @param component the color component
+     * @return the float component, not bigger than the original component
+     */
+    static float toFloat(double component) {
+        float value = (float) component;
+        return value > component ? Math.nextDown(value) : value;
+    }
+
+    /**
+     * Convert a row of the frame buffer into 8 bits RGB components
+     *
+     * @param y   the index of the row
+     * @param rgb the array to fill - 3 bytes for each pixel of the row
+     */
+    private void getRow(int y, byte[] rgb) {
+        toRow(pixels, 3 * nX * y, rgb);
+    }
+
+    /**
+     * Convert a row of components into 8 bits RGB components
+     *
+     * @param components the components
+     * @param offset     the position of the row in the components
+     * @param rgb        the array to fill - 3 bytes for each pixel of the row
+     */
+    void toRow(float[] components, int offset, byte[] rgb) {
+        for (int i = 0, index = offset; i < rgb.length; ++i, ++index)
+            rgb[i] = (byte) toLevel(components[index]);
+    }
+
+    /**
+     * Convert a color component to 8 bits, as in {@link Color#getColor()} - the fraction is truncated,
+     * and a component bigger than 255 is set to 255
+     *
+     * @param component the color component
+     * @return the 8 bits level of the component
+     */
+    private int toLevel(float component) {
+        int level = (int) (exposure == 1 ? component : component * exposure);
+        return level > 255 ? 255 : level;
     }
 
 }
@@ -0,0 +1,98 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+import scene.Scene;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * IterativeRayTracer traces the same model as {@link SimpleRayTracer}, but without recursion.
+ * The reflected and refracted rays are kept in an explicit stack of branches, each one with its
+ * accumulated attenuation (throughput). The local effects of every hit are added to a single color
+ * accumulator, scaled by the throughput of the branch, and a branch that is terminated by the
+ * {@link TerminationPolicy} is pruned before its ray is even constructed.
+ * The images are the same as the images of SimpleRayTracer up to the rounding of the sums.
+ */
+public class IterativeRayTracer extends SimpleRayTracer {
+
+    /**
+     * A secondary ray waiting to be traced
+     *
+     * @param ray   the ray to trace
+     * @param k     the accumulated attenuation of the ray
+     * @param level the remaining recursion level of the ray
+     */
+    private record Branch(Ray ray, Double3 k, int level) {
+    }
+
+    /**
+     * Constructs an IterativeRayTracer with the given scene and the default termination policy.
+     *
+     * @param scene The scene to be ray traced.
+     */
+    public IterativeRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    /**
+     * Constructs an IterativeRayTracer with the given scene and termination policy.
+     *
+     * @param scene       The scene to be ray traced.
+     * @param termination The policy that decides when the tracing of the secondary rays stops.
+     */
+    public IterativeRayTracer(Scene scene, TerminationPolicy termination) {
+        super(scene, termination);
+    }
+
+    @Override
+    protected Color traceHit(Ray ray, GeoPoint geoPoint) {
+        if (geoPoint == null) return scene.background;
+
+        ColorAccumulator color = new ColorAccumulator(scene.ambientLight.getIntensity());
+        Deque<Branch> branches = new ArrayDeque<>();
+        Double3 k = INITIAL_K;
+        int level = termination.getMaxLevel();
+        while (true) {
+            color.addScaled(calcLocalEffects(geoPoint, ray, k), k);
+            Material material = geoPoint.geometry.getMaterial();
+            if (!termination.isLastLevel(level, material)) {
+                Vector v = ray.getDirection();
+                // the secondary rays are constructed only for the branches that are not terminated
+                Double3 kr = termination.branchFactor(material.kR, k);
+                if (kr != null)
+                    push(branches, constructReflectedRay(geoPoint, v), kr.product(k), level - 1);
+                Double3 kt = termination.branchFactor(material.kT, k);
+                if (kt != null)
+                    push(branches, constructRefractedRay(geoPoint, v), kt.product(k), level - 1);
+            }
+
+            // find the next branch that hits a geometry, the missing ones see the background
+            geoPoint = null;
+            while (geoPoint == null && !branches.isEmpty()) {
+                Branch branch = branches.pop();
+                geoPoint = findClosestIntersection(branch.ray());
+                if (geoPoint == null) color.addScaled(scene.background, branch.k());
+                else {
+                    ray = branch.ray();
+                    k = branch.k();
+                    level = branch.level();
+                }
+            }
+            if (geoPoint == null) return color.toColor();
+        }
+    }
+
+    /**
+     * Push a secondary ray to the stack of the branches
+     *
+     * @param branches the stack of the branches
+     * @param ray      the secondary ray, may be null (e.g. a reflection of a grazing ray)
+     * @param k        the accumulated attenuation of the secondary ray
+     * @param level    the remaining recursion level of the secondary ray
+     */
+    private static void push(Deque<Branch> branches, Ray ray, Double3 k, int level) {
+        if (ray != null) branches.push(new Branch(ray, k, level));
+    }
+}
@@ -0,0 +1,61 @@
+package renderer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lens sampler of stratified (jittered grid) samples - the aperture is divided into a grid of cells
+ * with one random sample in each cell, so the samples cover the aperture evenly without clumps.
+ * When the amount of samples is not a square, the cells of the last grid row are wider.<br/>
+ * The cells are visited by a golden ratio stride rather than row by row, so any prefix of the samples
+ * (e.g. the initial rays of the adaptive depth of field) is spread over the whole aperture as well.
+ */
+public class JitteredLensSampler implements LensSampler {
+    /**
+     * The fraction of the golden ratio, which makes the stride between the visited cells
+     */
+    private static final double GOLDEN_FRACTION = (Math.sqrt(5) - 1) / 2;
+
+    @Override
+    public void sample(int col, int row, int count, double[] offsets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns - 1) / columns;
+        int stride = stride(count);
+        for (int k = 0, i = 0; k < count; ++k, i = (i + stride) % count) {
+            int cellRow = i / columns;
+            // the last row holds the rest of the samples
+            int rowColumns = cellRow == rows - 1 ? count - columns * (rows - 1) : columns;
+            offsets[2 * k] = (i % columns + random.nextDouble()) / rowColumns - 0.5;
+            offsets[2 * k + 1] = (cellRow + random.nextDouble()) / rows - 0.5;
+        }
+    }
+
+    /**
+     * Get the stride between the visited cells - the closest amount above the golden fraction of the cells
+     * that is coprime to it, so that every cell is visited exactly once
+     *
+     * @param count the amount of cells
+     * @return the stride
+     */
+    static int stride(int count) {
+        int stride = Math.max(1, (int) Math.round(count * GOLDEN_FRACTION));
+        while (gcd(stride, count) != 1) ++stride;
+        return stride;
+    }
+
+    /**
+     * Get the greatest common divisor of two positive numbers
+     *
+     * @param a the first number
+     * @param b the second number
+     * @return the greatest common divisor
+     */
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int rest = a % b;
+            a = b;
+            b = rest;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,20 @@
+package renderer;
+
+/**
+ * Interface representing a strategy for sampling the lens aperture for the depth of field rays.
+ * A sampler produces the offsets of the rays of a pixel on the aperture square. It is called concurrently
+ * by the rendering threads, so any state it keeps must be thread-local.
+ */
+public interface LensSampler {
+
+    /**
+     * Generate the aperture offsets of the depth of field rays of a pixel
+     *
+     * @param col     the column of the pixel
+     * @param row     the row of the pixel
+     * @param count   the amount of samples
+     * @param offsets the array to fill with the samples - {@code 2 * count} values, the horizontal and the
+     *                vertical offset of each sample, in the range [-0.5, 0.5) of the aperture size
+     */
+    void sample(int col, int row, int count, double[] offsets);
+}
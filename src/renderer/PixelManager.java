@@ -1,80 +1,144 @@
 package renderer;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into rectangular tiles that are dispensed to the threads
+ * through an atomic counter, so the threads never block each other and each
+ * thread works on a spatially coherent region.
  *
  * @author Dan Zilberstein
  */
 class PixelManager {
     /**
-     * Immutable class for object containing allocated pixel (with its row and column numbers)
+     * Immutable class for object containing allocated tile of pixels
      *
-     * @param col the column number of the pixel
-     * @param row the row number of the pixel
+     * @param startCol the first column of the tile
+     * @param startRow the first row of the tile
+     * @param endCol   the column after the last column of the tile
+     * @param endRow   the row after the last row of the tile
      */
-    record Pixel(int col, int row) {
+    record Tile(int startCol, int startRow, int endCol, int endRow) {
+        /**
+         * The amount of pixels in the tile
+         *
+         * @return the amount of pixels in the tile
+         */
+        int size() {
+            return (endCol - startCol) * (endRow - startRow);
+        }
     }
 
     /**
-     * Maximum rows of pixels
+     * All the tiles of the image, in the order they are dispensed
      */
-    private int maxRows = 0;
+    private final Tile[] tiles;
+
     /**
-     * Maximum columns of pixels
+     * The index of the next tile to dispense
      */
-    private int maxCols = 0;
+    private final AtomicInteger nextTile = new AtomicInteger(0);
 
     /**
-     * Currently processed row of pixels
+     * The amount of pixels that have been rendered
      */
-    private volatile int cRow = 0;
+    private final AtomicInteger donePixels = new AtomicInteger(0);
+
     /**
-     * Currently processed column of pixels
+     * The amount of pixels in the image
      */
-    private volatile int cCol = -1;
+    private final int totalPixels;
 
     /**
-     * Mutual exclusion object for synchronizing next pixel allocation between
-     * threads
+     * The listener to report the progress percentage to, may be null
      */
-    private final Object mutexNext = new Object();
+    private final DoubleConsumer progressListener;
 
     /**
      * Initialize pixel manager data for multi-threading
      *
-     * @param maxRows the amount of pixel rows
-     * @param maxCols the amount of pixel columns
+     * @param maxRows          the amount of pixel rows
+     * @param maxCols          the amount of pixel columns
+     * @param tileSize         the width and height of a tile in pixels
+     * @param order            the order in which the tiles are dispensed
+     * @param progressListener the listener to report the progress percentage to, or null
+     */
+    PixelManager(int maxRows, int maxCols, int tileSize, TileOrder order, DoubleConsumer progressListener) {
+        this.totalPixels = maxRows * maxCols;
+        this.progressListener = progressListener;
+
+        int tileRows = (maxRows + tileSize - 1) / tileSize;
+        int tileCols = (maxCols + tileSize - 1) / tileSize;
+        tiles = new Tile[tileRows * tileCols];
+        int index = 0;
+        for (int row = 0; row < tileRows; ++row)
+            for (int col = 0; col < tileCols; ++col)
+                tiles[index++] = new Tile(col * tileSize, row * tileSize,
+                        Math.min(maxCols, (col + 1) * tileSize), Math.min(maxRows, (row + 1) * tileSize));
+
+        switch (order) {
+            case MORTON -> Arrays.sort(tiles,
+                    Comparator.comparingLong(t -> mortonCode(t.startCol() / tileSize, t.startRow() / tileSize)));
+            case CENTER_OUT -> Arrays.sort(tiles, Comparator.comparingDouble(t -> {
+                double dx = (t.startCol() + t.endCol() - maxCols) / 2.0;
+                double dy = (t.startRow() + t.endRow() - maxRows) / 2.0;
+                return dx * dx + dy * dy;
+            }));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Interleave the bits of the tile coordinates into a Z-order curve index
+     *
+     * @param col the tile column
+     * @param row the tile row
+     * @return the Morton code of the tile
      */
-    PixelManager(int maxRows, int maxCols) {
-        this.maxRows = maxRows;
-        this.maxCols = maxCols;
+    private static long mortonCode(int col, int row) {
+        long code = 0;
+        for (int bit = 0; bit < 31; ++bit) {
+            code |= ((long) (col >> bit) & 1) << (2 * bit);
+            code |= ((long) (row >> bit) & 1) << (2 * bit + 1);
+        }
+        return code;
     }
 
     /**
-     * Function for thread-safe manipulating of main follow-up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
+     * Function for thread-safe allocation of the next tile - the tiles are dispensed
+     * through an atomic counter without locking.
      *
-     * @return the next pixel to be processed, or null if all pixels have been allocated.
+     * @return the next tile to be processed, or null if all tiles have been allocated.
      */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
+    Tile nextTile() {
+        int index = nextTile.getAndIncrement();
+        return index < tiles.length ? tiles[index] : null;
+    }
 
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
+    /**
+     * Report that a tile has been rendered and notify the progress listener
+     *
+     * @param tile the rendered tile
+     */
+    void tileDone(Tile tile) {
+        int done = donePixels.addAndGet(tile.size());
+        if (progressListener != null)
+            progressListener.accept(100.0 * done / totalPixels);
+    }
 
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
-        }
-        return null;
+    /**
+     * Check whether all the pixels of the image have been rendered
+     *
+     * @return true if all the tiles have been reported as done
+     */
+    boolean isDone() {
+        return donePixels.get() == totalPixels;
     }
 }
@@ -0,0 +1,334 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel encoder of 8 bits RGB PNG images.
+ * The image is divided into horizontal bands that are filtered and compressed in parallel, each one into
+ * an independent raw deflate stream. The streams of all the bands but the last end with a sync flush on
+ * a byte boundary, so their concatenation (between the zlib header and the checksum of the whole data)
+ * is a single valid zlib stream as the PNG specification requires. The compressed bands are written to
+ * the file in order as IDAT chunks as soon as they are ready, and only as many bands as the processors
+ * are compressed ahead of the writing.<br/>
+ * The encoder can also be fed band by band (e.g. by {@link StreamingImageWriter}) - the bands are
+ * compressed independently from their own rows and written in order.
+ */
+class PngEncoder {
+    /**
+     * The source of the rows of the image
+     */
+    @FunctionalInterface
+    interface RowSource {
+        /**
+         * Fill the 8 bits RGB components of a row of the image
+         *
+         * @param y   the index of the row
+         * @param rgb the array to fill - 3 bytes for each pixel of the row
+         */
+        void getRow(int y, byte[] rgb);
+    }
+
+    /**
+     * The compressed data of a band
+     *
+     * @param data   the raw deflate stream of the band
+     * @param adler  the Adler-32 checksum of the uncompressed (filtered) data of the band
+     * @param length the length of the uncompressed data of the band
+     */
+    record Band(byte[] data, long adler, long length) {
+    }
+
+    /**
+     * The signature at the start of every PNG file
+     */
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    /**
+     * The zlib header - deflate with a 32K window and the default compression level
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+    /**
+     * The amount of uncompressed bytes in a band, approximately
+     */
+    private static final int BAND_BYTES = 1 << 18;
+    /**
+     * The modulus of the Adler-32 checksum
+     */
+    private static final long ADLER_BASE = 65521;
+
+    /**
+     * The width of the image in pixels
+     */
+    private final int nX;
+    /**
+     * The height of the image in pixels
+     */
+    private final int nY;
+    /**
+     * The source of the rows of the image, null if the bands are compressed from their own sources
+     */
+    private final RowSource source;
+
+    /**
+     * The Adler-32 checksum of the uncompressed data of the bands that were written
+     */
+    private long adler = 1;
+
+    /**
+     * Constructs an encoder of an image
+     *
+     * @param nX     the width of the image in pixels
+     * @param nY     the height of the image in pixels
+     * @param source the source of the rows of the image, called concurrently for different rows,
+     *               or null for an encoder that is fed band by band
+     */
+    PngEncoder(int nX, int nY, RowSource source) {
+        this.nX = nX;
+        this.nY = nY;
+        this.source = source;
+    }
+
+    /**
+     * Encode the image into a file
+     *
+     * @param channel the channel of the file
+     * @throws IOException if the writing fails
+     */
+    void write(FileChannel channel) throws IOException {
+        int bandRows = Math.max(1, BAND_BYTES / (3 * nX + 1));
+        // the bands in progress are limited to the processors, so the memory of the waiting bands is bounded
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Deque<CompletableFuture<Band>> bands = new ArrayDeque<>();
+        int start = 0;
+
+        writeHeader(channel);
+        while (start < nY || !bands.isEmpty()) {
+            for (; start < nY && bands.size() < parallelism; start += bandRows) {
+                int from = start, to = Math.min(nY, start + bandRows);
+                bands.add(CompletableFuture.supplyAsync(() -> compress(from, to, source, true)));
+            }
+            Band band;
+            try {
+                band = bands.remove().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            writeBand(channel, band);
+        }
+        writeEnd(channel);
+    }
+
+    /**
+     * Write the start of the file - the signature, the header chunk and the zlib header
+     *
+     * @param channel the channel of the file
+     * @throws IOException if the writing fails
+     */
+    void writeHeader(FileChannel channel) throws IOException {
+        ImageWriter.writeFully(channel, ByteBuffer.wrap(SIGNATURE));
+        writeChunk(channel, "IHDR", ByteBuffer.allocate(13).putInt(nX).putInt(nY)
+                .put((byte) 8).put((byte) 2) // 8 bits RGB
+                .put((byte) 0).put((byte) 0).put((byte) 0) // deflate, adaptive filtering, no interlace
+                .array());
+        writeChunk(channel, "IDAT", ZLIB_HEADER);
+    }
+
+    /**
+     * Write the next compressed band as an IDAT chunk - the bands must be written in the order of their rows
+     *
+     * @param channel the channel of the file
+     * @param band    the compressed band
+     * @throws IOException if the writing fails
+     */
+    void writeBand(FileChannel channel, Band band) throws IOException {
+        writeChunk(channel, "IDAT", band.data());
+        adler = combineAdler(adler, band.adler(), band.length());
+    }
+
+    /**
+     * Write the end of the file, after the last band - the zlib checksum and the end chunk
+     *
+     * @param channel the channel of the file
+     * @throws IOException if the writing fails
+     */
+    void writeEnd(FileChannel channel) throws IOException {
+        writeChunk(channel, "IDAT", ByteBuffer.allocate(4).putInt((int) adler).array());
+        writeChunk(channel, "IEND", new byte[0]);
+    }
+
+    /**
+     * Filter and compress a band of rows
+     *
+     * @param from        the first row of the band
+     * @param to          the row after the last row of the band
+     * @param rows        the source of the rows of the band
+     * @param previousRow whether the row before the band can be read from the source - without it,
+     *                    the first row is filtered only by the filter types that don't refer to the previous row
+     * @return the compressed band - a raw deflate stream that ends with a sync flush,
+     * or with the final block if it is the last band
+     */
+    Band compress(int from, int to, RowSource rows, boolean previousRow) {
+        int width = 3 * nX;
+        byte[] filtered = new byte[(to - from) * (width + 1)];
+        byte[] previous = new byte[width];
+        byte[] current = new byte[width];
+        byte[] candidate = new byte[width];
+        if (from > 0 && previousRow) rows.getRow(from - 1, previous);
+        for (int y = from, offset = 0; y < to; ++y, offset += width + 1) {
+            rows.getRow(y, current);
+            // the first row of the image refers to a previous row of zeros
+            int types = y == from && from > 0 && !previousRow ? 2 : 5;
+            filterRow(previous, current, candidate, filtered, offset, types);
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(filtered);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(filtered.length / 4 + 64);
+        byte[] buffer = new byte[1 << 16];
+        deflater.setInput(filtered);
+        if (to == nY) {
+            deflater.finish();
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+        } else {
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, count);
+            } while (count == buffer.length);
+        }
+        deflater.end();
+        return new Band(out.toByteArray(), adler.getValue(), filtered.length);
+    }
+
+    /**
+     * Filter a row with the PNG filter type that gives the smallest sum of absolute differences
+     * (the heuristic of the PNG specification)
+     *
+     * @param previous  the components of the previous row (zeros for the first row)
+     * @param current   the components of the row
+     * @param candidate a scratch row for the filter types that are tried
+     * @param filtered  the filtered data, the filter type byte followed by the filtered components
+     * @param offset    the position of the filtered row
+     * @param types     the amount of filter types to try - 5 for all of them, 2 for none and sub only
+     */
+    private static void filterRow(byte[] previous, byte[] current, byte[] candidate, byte[] filtered, int offset,
+                                  int types) {
+        long bestSum = Long.MAX_VALUE;
+        for (int type = 0; type < types; ++type) {
+            filter(type, previous, current, candidate);
+            long sum = 0;
+            for (byte component : candidate)
+                sum += Math.abs(component);
+            if (sum < bestSum) {
+                bestSum = sum;
+                filtered[offset] = (byte) type;
+                System.arraycopy(candidate, 0, filtered, offset + 1, candidate.length);
+            }
+        }
+    }
+
+    /**
+     * Filter a row with a filter type
+     *
+     * @param type     the filter type - none, sub, up, average or Paeth
+     * @param previous the components of the previous row
+     * @param current  the components of the row
+     * @param filtered the filtered components (modulo 256)
+     */
+    private static void filter(int type, byte[] previous, byte[] current, byte[] filtered) {
+        int length = current.length;
+        switch (type) {
+            case 0 -> System.arraycopy(current, 0, filtered, 0, length);
+            case 1 -> {
+                System.arraycopy(current, 0, filtered, 0, Math.min(3, length));
+                for (int i = 3; i < length; ++i)
+                    filtered[i] = (byte) (current[i] - current[i - 3]);
+            }
+            case 2 -> {
+                for (int i = 0; i < length; ++i)
+                    filtered[i] = (byte) (current[i] - previous[i]);
+            }
+            case 3 -> {
+                for (int i = 0; i < length; ++i) {
+                    int a = i >= 3 ? current[i - 3] & 0xFF : 0;
+                    filtered[i] = (byte) (current[i] - ((a + (previous[i] & 0xFF)) >> 1));
+                }
+            }
+            default -> {
+                for (int i = 0; i < 3 && i < length; ++i)
+                    filtered[i] = (byte) (current[i] - previous[i]); // the Paeth predictor of the first pixel is up
+                for (int i = 3; i < length; ++i)
+                    filtered[i] = (byte) (current[i]
+                            - paeth(current[i - 3] & 0xFF, previous[i] & 0xFF, previous[i - 3] & 0xFF));
+            }
+        }
+    }
+
+    /**
+     * The Paeth predictor - the neighbour that is closest to {@code a + b - c}
+     *
+     * @param a the left component
+     * @param b the upper component
+     * @param c the upper left component
+     * @return the predicted component
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Combine the Adler-32 checksums of two consecutive blocks of data (as in zlib)
+     *
+     * @param adler1  the checksum of the first block
+     * @param adler2  the checksum of the second block
+     * @param length2 the length of the second block
+     * @return the checksum of the two blocks together
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >> 16 & 0xFFFF) + (adler2 >> 16 & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ADLER_BASE << 1) sum2 -= ADLER_BASE << 1;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum2 << 16 | sum1;
+    }
+
+    /**
+     * Write a PNG chunk - the length, the type, the data and the CRC of the type and the data
+     *
+     * @param channel the channel of the file
+     * @param type    the chunk type
+     * @param data    the chunk data
+     * @throws IOException if the writing fails
+     */
+    private static void writeChunk(FileChannel channel, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        ImageWriter.writeFully(channel, ByteBuffer.allocate(8).putInt(data.length).put(typeBytes).flip());
+        ImageWriter.writeFully(channel, ByteBuffer.wrap(data));
+        ImageWriter.writeFully(channel, ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip());
+    }
+}
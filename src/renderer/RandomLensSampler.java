@@ -0,0 +1,16 @@
+package renderer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lens sampler of independent uniform random samples, drawn from the random generator of the current thread.
+ */
+public class RandomLensSampler implements LensSampler {
+
+    @Override
+    public void sample(int col, int row, int count, double[] offsets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 2 * count; ++i)
+            offsets[i] = random.nextDouble() - 0.5;
+    }
+}
@@ -1,5 +1,6 @@
 package renderer;
 
+import geometries.Intersectable.GeoPoint;
 import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
@@ -30,4 +31,50 @@ public abstract class RayTracerBase {
      * @return The color resulting from tracing the ray.
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces a batch of rays in the scene. The default implementation traces the rays one by one;
+     * a tracer may override it to process the whole batch in stages.
+     *
+     * @param rays The rays to be traced.
+     * @return The colors resulting from tracing the rays, in the order of the rays.
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceRay(rays[i]);
+        return colors;
+    }
+
+    /**
+     * Traces a packet of coherent rays in the scene, e.g. the primary rays of a block of neighbouring
+     * pixels. The default implementation traces it as a batch; a tracer may override it to intersect
+     * the rays of the packet together.
+     *
+     * @param rays The rays of the packet.
+     * @return The colors resulting from tracing the rays, in the order of the rays.
+     */
+    public Color[] tracePacket(Ray[] rays) {
+        return traceRays(rays);
+    }
+
+    /**
+     * Traces a batch of rays in the scene and reports the distance of the closest hit of each ray,
+     * e.g. for focusing the depth of field by the geometry seen through the pixels. The default
+     * implementation traces the batch and intersects the rays again; a tracer that finds the closest
+     * hits anyway reports them instead.
+     *
+     * @param rays      The rays to be traced.
+     * @param packet    Whether the rays are a packet of coherent rays.
+     * @param distances The array to fill with the distance of the closest hit of each ray from its head,
+     *                  or {@link Double#POSITIVE_INFINITY} for a ray that misses.
+     * @return The colors resulting from tracing the rays, in the order of the rays.
+     */
+    public Color[] traceRays(Ray[] rays, boolean packet, double[] distances) {
+        for (int i = 0; i < rays.length; ++i) {
+            GeoPoint hit = scene.geometries.findClosestGeoIntersection(rays[i]);
+            distances[i] = hit == null ? Double.POSITIVE_INFINITY : hit.getDistance(rays[i].getHead());
+        }
+        return packet ? tracePacket(rays) : traceRays(rays);
+    }
 }
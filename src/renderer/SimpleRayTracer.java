@@ -5,8 +5,6 @@ import primitives.*;
 import scene.Scene;
 import geometries.Intersectable.GeoPoint;
 
-import java.util.List;
-
 import static java.lang.Math.abs;
 import static java.lang.Math.pow;
 import static primitives.Util.alignZero;
@@ -19,36 +17,77 @@ import static primitives.Util.isZero;
 public class SimpleRayTracer extends RayTracerBase {
 
     /**
-     * The maximum level of color calculations.
-     * This constant defines how many recursive color calculations can be performed.
+     * Initial attenuation factor for calculating light intensity.
+     * This constant is used in various lighting calculations to initialize the attenuation factor.
      */
-    private static final int MAX_CALC_COLOR_LEVEL = 10;
+    protected static final Double3 INITIAL_K = Double3.ONE;
 
     /**
-     * The minimum color coefficient for calculations.
-     * This constant sets the threshold below which color calculations are considered insignificant.
+     * The policy that decides when the tracing of the secondary rays stops
      */
-    private static final double MIN_CALC_COLOR_K = 0.001;
+    protected final TerminationPolicy termination;
 
     /**
-     * Initial attenuation factor for calculating light intensity.
-     * This constant is used in various lighting calculations to initialize the attenuation factor.
+     * Constructs a SimpleRayTracer with the given scene and the default termination policy.
+     *
+     * @param scene The scene to be ray traced.
      */
-    private static final Double3 INITIAL_K = Double3.ONE;
+    public SimpleRayTracer(Scene scene) {
+        this(scene, new TerminationPolicy());
+    }
 
     /**
-     * Constructs a SimpleRayTracer with the given scene.
+     * Constructs a SimpleRayTracer with the given scene and termination policy.
      *
-     * @param scene The scene to be ray traced.
+     * @param scene       The scene to be ray traced.
+     * @param termination The policy that decides when the tracing of the secondary rays stops.
      */
-    public SimpleRayTracer(Scene scene) {
+    public SimpleRayTracer(Scene scene, TerminationPolicy termination) {
         super(scene);
+        this.termination = termination;
     }
 
     @Override
     public Color traceRay(Ray ray) {
-        var point = findClosestIntersection(ray);
-        return point == null ? scene.background : calcColor(point, ray);
+        return traceHit(ray, findClosestIntersection(ray));
+    }
+
+    @Override
+    public Color[] tracePacket(Ray[] rays) {
+        // the closest hits of the coherent rays are found together
+        GeoPoint[] hits = scene.geometries.findClosestGeoIntersections(rays);
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceHit(rays[i], hits[i]);
+        return colors;
+    }
+
+    @Override
+    public Color[] traceRays(Ray[] rays, boolean packet, double[] distances) {
+        GeoPoint[] hits;
+        if (packet) hits = scene.geometries.findClosestGeoIntersections(rays);
+        else {
+            hits = new GeoPoint[rays.length];
+            for (int i = 0; i < rays.length; ++i)
+                hits[i] = findClosestIntersection(rays[i]);
+        }
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i) {
+            distances[i] = hits[i] == null ? Double.POSITIVE_INFINITY : hits[i].getDistance(rays[i].getHead());
+            colors[i] = traceHit(rays[i], hits[i]);
+        }
+        return colors;
+    }
+
+    /**
+     * Calculate the color seen by a ray whose closest intersection is already known
+     *
+     * @param ray the traced ray
+     * @param hit the closest intersection of the ray, or null if there is none
+     * @return the color resulting from tracing the ray
+     */
+    protected Color traceHit(Ray ray, GeoPoint hit) {
+        return hit == null ? scene.background : calcColor(hit, ray);
     }
 
     /**
@@ -59,7 +98,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the calculated color including ambient light.
      */
     private Color calcColor(GeoPoint geoPoint, Ray ray) {
-        return calcColor(geoPoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
+        return calcColor(geoPoint, ray, termination.getMaxLevel(), INITIAL_K)
                 .add(scene.ambientLight.getIntensity());
     }
 
@@ -74,23 +113,26 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Color calcColor(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
         Color color = calcLocalEffects(geoPoint, ray, k);
-        return 1 == level ? color : color.add(calcGlobalEffects(geoPoint, ray, level, k));
+        return termination.isLastLevel(level, geoPoint.geometry.getMaterial())
+                ? color
+                : color.add(calcGlobalEffects(geoPoint, ray, level, k));
     }
 
     /**
      * Calculate the global effect of a ray considering the attenuation factor and recursion level.
      *
-     * @param ray   the ray to calculate the global effect for.
+     * @param ray   the ray to calculate the global effect for, may be null if there is no such ray.
      * @param kx    the material's attenuation factor.
      * @param level the current recursion level.
      * @param k     the accumulated attenuation factor.
      * @return the calculated color including global effects.
      */
     private Color calcGlobalEffect(Ray ray, Double3 kx, int level, Double3 k) {
-        Double3 kkx = kx.product(k);
-        if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+        Double3 factor = termination.branchFactor(kx, k);
+        if (factor == null || ray == null) return Color.BLACK;
+        Double3 kkx = factor.product(k);
         GeoPoint geoPoint = findClosestIntersection(ray);
-        return (geoPoint == null ? scene.background : calcColor(geoPoint, ray, level - 1, kkx)).scale(kx);
+        return (geoPoint == null ? scene.background : calcColor(geoPoint, ray, level - 1, kkx)).scale(factor);
     }
 
     /**
@@ -116,27 +158,27 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param k   double3 for the production
      * @return The color contribution from local illumination effects at the intersection point.
      */
-    private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
-        Vector n = gp.geometry.getNormal(gp.point);
+    protected Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
+        Vector n = gp.getNormal();
         Vector v = ray.getDirection();
         double nv = alignZero(n.dotProduct(v));
-        Color color = gp.geometry.getEmission();
-        if (nv == 0) return color;
+        Color emission = gp.geometry.getEmission();
+        if (nv == 0) return emission;
 
+        // the contributions of the lights are summed in place
+        ColorAccumulator color = new ColorAccumulator(emission);
         Material material = gp.geometry.getMaterial();
         for (LightSource lightSource : scene.lights) {
             Vector l = lightSource.getL(gp.point);
             double nl = alignZero(n.dotProduct(l));
             if (nl * nv > 0) {
                 Double3 ktr = transparency(gp, lightSource, l, n);
-                if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color il = lightSource.getIntensity(gp.point).scale(ktr);
-                    color = color.add(il.scale(calcDiffusive(material, nl)
-                            .add(calcSpecular(material, n, l, nl, v))));
-                }
+                if (!ktr.product(k).lowerThan(termination.getMinK()))
+                    color.addScaled(lightSource.getIntensity(gp.point), ktr,
+                            calcDiffusive(material, nl).add(calcSpecular(material, n, l, nl, v)));
             }
         }
-        return color;
+        return color.toColor();
     }
 
     /**
@@ -149,9 +191,9 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param v        The view direction vector.
      * @return The specular reflection contribution color as Double3 (RGB).
      */
-    private Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
-        Vector r = l.add(n.scale(-2 * nl));
-        double mVR = alignZero(-v.dotProduct(r));
+    protected Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
+        // r = l - 2 * nl * n, calculated in place
+        double mVR = alignZero(-new MutableVector(l).scaleAdd(n, -2 * nl).dotProduct(v));
         return mVR <= 0 ? Double3.ZERO : material.kS.scale(pow(mVR, material.Shininess));
     }
 
@@ -162,7 +204,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param nl       The dot product of n and l.
      * @return The diffuse reflection contribution color as Double3 (RGB).
      */
-    private Double3 calcDiffusive(Material material, double nl) {
+    protected Double3 calcDiffusive(Material material, double nl) {
         return material.kD.scale(abs(nl));
     }
 
@@ -172,9 +214,8 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray the ray for which to find the closest intersection
      * @return the closest GeoPoint intersection, or null if no intersections are found
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        var intersections = scene.geometries.findGeoIntersections(ray);
-        return intersections == null ? null : ray.findClosestGeoPoint(intersections);
+    protected GeoPoint findClosestIntersection(Ray ray) {
+        return scene.geometries.findClosestGeoIntersection(ray);
     }
 
     /**
@@ -184,8 +225,8 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param v  the direction of the incoming ray
      * @return the refracted ray
      */
-    private Ray constructRefractedRay(GeoPoint gp, Vector v) {
-        Vector n = gp.geometry.getNormal(gp.point);
+    protected Ray constructRefractedRay(GeoPoint gp, Vector v) {
+        Vector n = gp.getNormal();
         return new Ray(gp.point, v, n);
     }
 
@@ -196,11 +237,11 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param v  the direction of the incoming ray
      * @return the reflected ray, or null if the incoming ray is parallel to the surface
      */
-    private Ray constructReflectedRay(GeoPoint gp, Vector v) {
-        Vector n = gp.geometry.getNormal(gp.point);
+    protected Ray constructReflectedRay(GeoPoint gp, Vector v) {
+        Vector n = gp.getNormal();
         double nv = n.dotProduct(v);
         if (isZero(nv)) return null;
-        Vector vec = v.subtract(n.scale(2 * nv));
+        Vector vec = new MutableVector(v).scaleAdd(n, -2 * nv).toVector();
         return new Ray(gp.point, vec, n);
     }
 
@@ -213,27 +254,14 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param lightSource source of the light
      * @return white if the point is unshaded, the color otherwise
      */
-    private Double3 transparency(GeoPoint geoPoint, LightSource lightSource, Vector l, Vector n) {
+    protected Double3 transparency(GeoPoint geoPoint, LightSource lightSource, Vector l, Vector n) {
         Vector lightDirection = l.scale(-1);  // Direction from the point towards the light source
         // Create a ray from the adjusted point in the direction of the light
         Ray lightRay = new Ray(geoPoint.point, lightDirection, n);
 
-        Double3 ktr = Double3.ONE;
-        // Find intersections of the light ray with geometries in the scene
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-        if (intersections == null) return ktr;
-
-        // The distance between lightSource and the point on the body
-        double distance = lightSource.getDistance(geoPoint.point);
-        //if one of the intersection point is before the body than return false
-        for (var intersectionPoint : intersections) {
-            if (geoPoint.point.distance(intersectionPoint.point) < distance) {
-                ktr = ktr.product(intersectionPoint.geometry.getMaterial().kT);
-                if (ktr.lowerThan(MIN_CALC_COLOR_K))
-                    return Double3.ZERO;
-            }
-        }
-        return ktr;
+        // Only the geometries between the point and the light source can shade the point
+        return scene.geometries.findTransparency(lightRay, lightSource.getDistance(lightRay.getHead()),
+                termination.getMinK());
     }
 
 }
@@ -0,0 +1,215 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import primitives.Color;
+
+/**
+ * Image writer that streams the image into the PNG file while it is rendered, for images that are too big
+ * to be kept in memory. The image is divided into horizontal bands of rows; a band is kept in memory only
+ * from its first written pixel until all its tiles are done. Then the rendering thread that completed it
+ * compresses it, and the compressed bands are appended to the file in the order of their rows.<br/>
+ * With the tiles dispensed in {@link TileOrder#ROW_MAJOR} order and bands as high as the tiles, only a few
+ * bands are in memory at any time, whatever the size of the image. The rows of a band can't be changed
+ * after it was written, and the image can be written only as a PNG file.
+ */
+public final class StreamingImageWriter extends ImageWriter {
+    /**
+     * The height of a band in rows
+     */
+    private final int bandHeight;
+    /**
+     * The amount of bands in the image
+     */
+    private final int bandsCount;
+    /**
+     * The encoder of the file
+     */
+    private final PngEncoder encoder;
+    /**
+     * The components of the bands in memory by the index of the band
+     */
+    private final Map<Integer, float[]> bands = new ConcurrentHashMap<>();
+    /**
+     * The amount of pixels of each band that are not done yet, 0 for a band that was written
+     */
+    private final AtomicIntegerArray remaining;
+    /**
+     * The compressed bands that wait for the bands before them, by the index of the band
+     */
+    private final Map<Integer, PngEncoder.Band> compressed = new HashMap<>();
+    /**
+     * The index of the next band to append to the file
+     */
+    private int nextBand = 0;
+    /**
+     * The channel of the file, null before the first band is appended
+     */
+    private FileChannel channel = null;
+
+    /**
+     * Constructs a streaming image writer
+     *
+     * @param imageName  the name of png file
+     * @param nX         amount of pixels by Width
+     * @param nY         amount of pixels by height
+     * @param bandHeight the height of a band in rows - typically the tile size of the camera
+     * @throws IllegalArgumentException if the band height is not positive
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY, int bandHeight) {
+        super(imageName, nX, nY, false);
+        if (bandHeight < 1) throw new IllegalArgumentException("The band height must be positive");
+        this.bandHeight = bandHeight;
+        bandsCount = (nY + bandHeight - 1) / bandHeight;
+        encoder = new PngEncoder(nX, nY, null);
+        remaining = new AtomicIntegerArray(bandsCount);
+        for (int band = 0; band < bandsCount; ++band)
+            remaining.set(band, nX * (bandEnd(band, bandHeight, nY) - band * bandHeight));
+    }
+
+    /**
+     * Get the amount of rows from the top of the image that were already written to the file
+     *
+     * @return the amount of written rows
+     */
+    public synchronized int getWrittenRows() {
+        return Math.min(getNy(), nextBand * bandHeight);
+    }
+
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        int index = 3 * ((yIndex % bandHeight) * getNx() + xIndex);
+        float[] band = band(yIndex);
+        band[index] = toFloat(color.getRed());
+        band[index + 1] = toFloat(color.getGreen());
+        band[index + 2] = toFloat(color.getBlue());
+    }
+
+    @Override
+    public void addToPixel(int xIndex, int yIndex, Color color) {
+        int index = 3 * ((yIndex % bandHeight) * getNx() + xIndex);
+        float[] band = band(yIndex);
+        band[index] = toFloat(band[index] + color.getRed());
+        band[index + 1] = toFloat(band[index + 1] + color.getGreen());
+        band[index + 2] = toFloat(band[index + 2] + color.getBlue());
+    }
+
+    @Override
+    public Color getPixel(int xIndex, int yIndex) {
+        int index = 3 * ((yIndex % bandHeight) * getNx() + xIndex);
+        float[] band = band(yIndex);
+        return new Color(band[index], band[index + 1], band[index + 2]);
+    }
+
+    /**
+     * Write the bands that were not written yet (the pixels that were not written are black)
+     * and complete the file
+     */
+    @Override
+    public void writeToImage() {
+        for (int band = 0; band < bandsCount; ++band)
+            if (remaining.getAndSet(band, 0) > 0) writeBand(band);
+    }
+
+    /**
+     * The whole image is not kept in memory, so it can't be written as a float image
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void writeToPfm() {
+        throw new UnsupportedOperationException("A streamed image can be written only as a PNG file");
+    }
+
+    /**
+     * The whole image is not kept in memory, so it can't be written as a float image
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void writeToExr() {
+        throw new UnsupportedOperationException("A streamed image can be written only as a PNG file");
+    }
+
+    @Override
+    void tileDone(PixelManager.Tile tile) {
+        for (int band = tile.startRow() / bandHeight; band * bandHeight < tile.endRow(); ++band) {
+            int rows = Math.min(tile.endRow(), bandEnd(band)) - Math.max(tile.startRow(), band * bandHeight);
+            if (remaining.addAndGet(band, -rows * (tile.endCol() - tile.startCol())) == 0) writeBand(band);
+        }
+    }
+
+    /**
+     * Get the components of the band of a row, allocating the band on its first use
+     *
+     * @param yIndex the index of the row
+     * @return the components of the band
+     * @throws IllegalStateException if the band was already written to the file
+     */
+    private float[] band(int yIndex) {
+        int band = yIndex / bandHeight;
+        if (remaining.get(band) == 0)
+            throw new IllegalStateException("Row " + yIndex + " was already written to the file");
+        return bands.computeIfAbsent(band, b -> new float[3 * getNx() * (bandEnd(b) - b * bandHeight)]);
+    }
+
+    /**
+     * Get the row after the last row of a band
+     *
+     * @param band the index of the band
+     * @return the row after the band
+     */
+    private int bandEnd(int band) {
+        return bandEnd(band, bandHeight, getNy());
+    }
+
+    /**
+     * Get the row after the last row of a band
+     *
+     * @param band       the index of the band
+     * @param bandHeight the height of a band in rows
+     * @param nY         the amount of rows of the image
+     * @return the row after the band
+     */
+    private static int bandEnd(int band, int bandHeight, int nY) {
+        return Math.min(nY, (band + 1) * bandHeight);
+    }
+
+    /**
+     * Compress a completed band, release its memory, and append all the bands that are ready in order
+     *
+     * @param band the index of the band
+     */
+    private void writeBand(int band) {
+        float[] components = bands.remove(band);
+        int from = band * bandHeight;
+        PngEncoder.Band data = encoder.compress(from, bandEnd(band), (y, rgb) -> {
+            if (components == null) Arrays.fill(rgb, (byte) 0);
+            else toRow(components, 3 * getNx() * (y - from), rgb);
+        }, false);
+
+        synchronized (this) {
+            compressed.put(band, data);
+            try {
+                if (channel == null) {
+                    channel = openImageFile(".png");
+                    encoder.writeHeader(channel);
+                }
+                for (PngEncoder.Band next; (next = compressed.remove(nextBand)) != null; ++nextBand)
+                    encoder.writeBand(channel, next);
+                if (nextBand == bandsCount) {
+                    encoder.writeEnd(channel);
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw ioError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package renderer;
+
+import primitives.Double3;
+import primitives.Material;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The policy that decides when the tracing of the secondary (reflected and refracted) rays stops.
+ * It combines:
+ * <ul>
+ * <li>a fixed maximum recursion level</li>
+ * <li>a threshold on the accumulated attenuation (throughput) - weaker branches are cut</li>
+ * <li>Russian roulette - a branch whose throughput is weaker than the roulette threshold survives
+ * with a probability proportional to its throughput, and its contribution is divided by that
+ * probability, so the image stays unbiased on average while most of the weak branches are not traced</li>
+ * <li>maximum recursion levels per material</li>
+ * </ul>
+ * The default policy is a fixed level of 10 with a threshold of 0.001 and no roulette.
+ * The policy is read concurrently by the rendering threads, so it should not be changed while rendering.
+ */
+public class TerminationPolicy {
+    /**
+     * The default maximum level of the color calculations
+     */
+    public static final int DEFAULT_MAX_LEVEL = 10;
+
+    /**
+     * The default threshold below which the contribution of a ray is considered insignificant
+     */
+    public static final double DEFAULT_MIN_K = 0.001;
+
+    /**
+     * The maximum level of the color calculations
+     */
+    private int maxLevel = DEFAULT_MAX_LEVEL;
+
+    /**
+     * The threshold below which the contribution of a ray is considered insignificant
+     */
+    private double minK = DEFAULT_MIN_K;
+
+    /**
+     * The throughput below which Russian roulette is played, 0 if there is no roulette
+     */
+    private double rouletteK = 0;
+
+    /**
+     * The maximum levels of specific materials (by identity)
+     */
+    private final Map<Material, Integer> materialLevels = new IdentityHashMap<>();
+
+    /**
+     * Set the maximum level of the color calculations (1 - no secondary rays at all)
+     *
+     * @param maxLevel the maximum level
+     * @return the current policy
+     * @throws IllegalArgumentException if the level is lower than 1
+     */
+    public TerminationPolicy setMaxLevel(int maxLevel) {
+        if (maxLevel < 1) throw new IllegalArgumentException("The maximum level must be at least 1");
+        this.maxLevel = maxLevel;
+        return this;
+    }
+
+    /**
+     * Set the maximum level of the color calculations after hitting a specific material.
+     * The secondary rays of a hit on the material are not traced if the hit is at that level or deeper.
+     *
+     * @param material the material
+     * @param maxLevel the maximum level for the material
+     * @return the current policy
+     * @throws IllegalArgumentException if the level is lower than 1
+     */
+    public TerminationPolicy setMaxLevel(Material material, int maxLevel) {
+        if (maxLevel < 1) throw new IllegalArgumentException("The maximum level must be at least 1");
+        materialLevels.put(material, maxLevel);
+        return this;
+    }
+
+    /**
+     * Set the threshold below which the contribution of a ray is considered insignificant
+     *
+     * @param minK the threshold, 0 to trace every branch up to the maximum level
+     * @return the current policy
+     * @throws IllegalArgumentException if the threshold is negative or above the roulette threshold
+     */
+    public TerminationPolicy setMinK(double minK) {
+        if (minK < 0) throw new IllegalArgumentException("The threshold can't be negative");
+        if (rouletteK > 0 && minK > rouletteK)
+            throw new IllegalArgumentException("The threshold can't be above the roulette threshold");
+        this.minK = minK;
+        return this;
+    }
+
+    /**
+     * Set the throughput below which Russian roulette is played on the branches
+     *
+     * @param rouletteK the roulette threshold - between the minimal threshold and 1, or 0 to disable the roulette
+     * @return the current policy
+     * @throws IllegalArgumentException if the threshold is not 0 and not in the range [minimal threshold,1]
+     */
+    public TerminationPolicy setRussianRoulette(double rouletteK) {
+        if (rouletteK < 0 || rouletteK > 1)
+            throw new IllegalArgumentException("The roulette threshold must be between 0 and 1");
+        if (rouletteK > 0 && rouletteK < minK)
+            throw new IllegalArgumentException("The roulette threshold can't be below the minimal threshold");
+        this.rouletteK = rouletteK;
+        return this;
+    }
+
+    /**
+     * Get the maximum level of the color calculations - the level of the primary rays
+     *
+     * @return the maximum level
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Get the threshold below which the contribution of a ray is considered insignificant
+     *
+     * @return the threshold
+     */
+    public double getMinK() {
+        return minK;
+    }
+
+    /**
+     * Check whether the secondary rays of a hit should not be traced anymore
+     *
+     * @param level    the remaining level of the ray that hit the material (counts down from the maximum level)
+     * @param material the material of the hit geometry
+     * @return true if the hit is on the last level
+     */
+    public boolean isLastLevel(int level, Material material) {
+        if (level <= 1) return true;
+        if (materialLevels.isEmpty()) return false;
+        Integer materialLevel = materialLevels.get(material);
+        return materialLevel != null && maxLevel - level + 1 >= materialLevel;
+    }
+
+    /**
+     * Decide whether a secondary ray is traced and with which factor its color is scaled
+     *
+     * @param kx the attenuation factor of the material for the secondary ray
+     * @param k  the accumulated attenuation of the parent ray
+     * @return the factor to scale the color of the secondary ray by (kx, or kx divided by the
+     * survival probability of the roulette), or null if the branch is terminated
+     */
+    public Double3 branchFactor(Double3 kx, Double3 k) {
+        Double3 kkx = kx.product(k);
+        // a branch that contributes nothing is never traced, even without a threshold
+        double throughput = kkx.max();
+        if (throughput <= 0 || kkx.lowerThan(minK)) return null;
+        if (!kkx.lowerThan(rouletteK)) return kx;
+
+        double survival = throughput / rouletteK;
+        return ThreadLocalRandom.current().nextDouble() < survival ? kx.scale(1 / survival) : null;
+    }
+}
@@ -0,0 +1,19 @@
+package renderer;
+
+/**
+ * The order in which the image tiles are dispensed to the rendering threads.
+ */
+public enum TileOrder {
+    /**
+     * Row after row, from the top left tile to the bottom right tile
+     */
+    ROW_MAJOR,
+    /**
+     * Z-order (Morton) curve, so that consecutive tiles are spatially close in both axes
+     */
+    MORTON,
+    /**
+     * From the center of the image outwards, so the main subject appears first
+     */
+    CENTER_OUT
+}
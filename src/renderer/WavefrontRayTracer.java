@@ -0,0 +1,212 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import lighting.LightSource;
+import primitives.*;
+import scene.Scene;
+
+import static primitives.Util.alignZero;
+
+/**
+ * WavefrontRayTracer traces a batch of rays (e.g. all the rays of a tile) bounce by bounce instead of
+ * tracing the whole tree of every ray depth first. Every wave of rays goes through the same stages:
+ * <ol>
+ * <li>intersection - the closest hits of all the rays of the wave</li>
+ * <li>shadows - the shadow rays of all the hits towards all the lights</li>
+ * <li>shading - the emission and the lights of all the hits, with the Phong model of {@link SimpleRayTracer}</li>
+ * <li>generation - the reflected and refracted rays of all the hits, which form the next wave</li>
+ * </ol>
+ * so each stage runs a tight loop over its rays against the same geometries. The contribution of every
+ * ray is weighted by its accumulated attenuation, and the branches are terminated by the
+ * {@link TerminationPolicy} as in the other tracers.
+ */
+public class WavefrontRayTracer extends SimpleRayTracer {
+
+    /**
+     * A ray of a wave
+     *
+     * @param ray   the ray
+     * @param index the index of the traced ray that this ray contributes to
+     * @param k     the accumulated attenuation of the ray
+     * @param level the remaining recursion level of the ray
+     */
+    private record PathRay(Ray ray, int index, Double3 k, int level) {
+    }
+
+    /**
+     * A shadow ray query of a hit towards a light source
+     *
+     * @param hit   the index of the hit in the wave
+     * @param light the light source
+     * @param l     the direction from the light source to the hit point
+     * @param nl    the dot product of the normal and l
+     */
+    private record ShadowQuery(int hit, LightSource light, Vector l, double nl) {
+    }
+
+    /**
+     * Constructs a WavefrontRayTracer with the given scene and the default termination policy.
+     *
+     * @param scene The scene to be ray traced.
+     */
+    public WavefrontRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    /**
+     * Constructs a WavefrontRayTracer with the given scene and termination policy.
+     *
+     * @param scene       The scene to be ray traced.
+     * @param termination The policy that decides when the tracing of the secondary rays stops.
+     */
+    public WavefrontRayTracer(Scene scene, TerminationPolicy termination) {
+        super(scene, termination);
+    }
+
+    @Override
+    public Color traceRay(Ray ray) {
+        return traceRays(new Ray[]{ray})[0];
+    }
+
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        return traceWaves(rays, false, null);
+    }
+
+    @Override
+    public Color[] tracePacket(Ray[] rays) {
+        return traceWaves(rays, true, null);
+    }
+
+    @Override
+    public Color[] traceRays(Ray[] rays, boolean packet, double[] distances) {
+        return traceWaves(rays, packet, distances);
+    }
+
+    /**
+     * Trace a batch of rays wave after wave
+     *
+     * @param rays      the rays to trace
+     * @param packet    whether the rays are coherent and should be intersected together
+     * @param distances the array to fill with the distances of the closest hits of the rays, or null
+     * @return the colors resulting from tracing the rays, in the order of the rays
+     */
+    private Color[] traceWaves(Ray[] rays, boolean packet, double[] distances) {
+        Color[] colors = new Color[rays.length];
+        ColorAccumulator[] sums = new ColorAccumulator[rays.length];
+
+        PathRay[] wave = new PathRay[rays.length];
+        for (int i = 0; i < rays.length; ++i)
+            wave[i] = new PathRay(rays[i], i, INITIAL_K, termination.getMaxLevel());
+        int waveSize = rays.length;
+        boolean primary = true;
+
+        while (waveSize > 0) {
+            // intersection stage - a packet of coherent primary rays is intersected together
+            GeoPoint[] hits;
+            if (primary && packet) hits = scene.geometries.findClosestGeoIntersections(rays);
+            else {
+                hits = new GeoPoint[waveSize];
+                for (int w = 0; w < waveSize; ++w)
+                    hits[w] = findClosestIntersection(wave[w].ray());
+            }
+
+            // the primary rays start with the ambient light, or see the background if they miss
+            if (primary) {
+                for (int w = 0; w < waveSize; ++w)
+                    if (hits[w] == null) colors[w] = scene.background;
+                    else sums[w] = new ColorAccumulator(scene.ambientLight.getIntensity());
+                if (distances != null)
+                    for (int w = 0; w < waveSize; ++w)
+                        distances[w] = hits[w] == null ? Double.POSITIVE_INFINITY
+                                : hits[w].getDistance(rays[w].getHead());
+                primary = false;
+            }
+
+            shade(wave, hits, waveSize, sums);
+
+            // generation stage - the secondary rays of the hits form the next wave
+            PathRay[] next = new PathRay[2 * waveSize];
+            int nextSize = 0;
+            for (int w = 0; w < waveSize; ++w) {
+                GeoPoint hit = hits[w];
+                PathRay pathRay = wave[w];
+                if (hit == null) continue;
+                Material material = hit.geometry.getMaterial();
+                if (termination.isLastLevel(pathRay.level(), material)) continue;
+
+                Vector v = pathRay.ray().getDirection();
+                Double3 kr = termination.branchFactor(material.kR, pathRay.k());
+                Ray reflected = kr == null ? null : constructReflectedRay(hit, v);
+                if (reflected != null)
+                    next[nextSize++] = new PathRay(reflected, pathRay.index(), kr.product(pathRay.k()), pathRay.level() - 1);
+                Double3 kt = termination.branchFactor(material.kT, pathRay.k());
+                if (kt != null)
+                    next[nextSize++] = new PathRay(constructRefractedRay(hit, v), pathRay.index(),
+                            kt.product(pathRay.k()), pathRay.level() - 1);
+            }
+            wave = next;
+            waveSize = nextSize;
+        }
+
+        for (int i = 0; i < rays.length; ++i)
+            if (colors[i] == null) colors[i] = sums[i].toColor();
+        return colors;
+    }
+
+    /**
+     * The shadows and shading stages of a wave - add the local effects of the hits (or the background for
+     * the secondary rays that miss) to the colors of the traced rays
+     *
+     * @param wave     the rays of the wave
+     * @param hits     the closest hits of the rays, null for a ray that misses
+     * @param waveSize the amount of rays in the wave
+     * @param sums     the colors of the traced rays
+     */
+    private void shade(PathRay[] wave, GeoPoint[] hits, int waveSize, ColorAccumulator[] sums) {
+        // the shadow rays of all the lit sides of the hits
+        ShadowQuery[] queries = new ShadowQuery[waveSize * scene.lights.size()];
+        int queriesCount = 0;
+        for (int w = 0; w < waveSize; ++w) {
+            GeoPoint hit = hits[w];
+            PathRay pathRay = wave[w];
+            if (hit == null) {
+                // only a secondary ray can miss here - a missing primary ray has no color sum
+                if (sums[pathRay.index()] != null) sums[pathRay.index()].addScaled(scene.background, pathRay.k());
+                continue;
+            }
+            sums[pathRay.index()].addScaled(hit.geometry.getEmission(), pathRay.k());
+
+            Vector n = hit.getNormal();
+            double nv = alignZero(n.dotProduct(pathRay.ray().getDirection()));
+            if (nv == 0) continue;
+            for (LightSource lightSource : scene.lights) {
+                Vector l = lightSource.getL(hit.point);
+                double nl = alignZero(n.dotProduct(l));
+                if (nl * nv > 0) queries[queriesCount++] = new ShadowQuery(w, lightSource, l, nl);
+            }
+        }
+
+        // shadows stage
+        Double3[] transparencies = new Double3[queriesCount];
+        for (int q = 0; q < queriesCount; ++q) {
+            GeoPoint hit = hits[queries[q].hit()];
+            transparencies[q] = transparency(hit, queries[q].light(), queries[q].l(), hit.getNormal());
+        }
+
+        // shading stage
+        for (int q = 0; q < queriesCount; ++q) {
+            ShadowQuery query = queries[q];
+            PathRay pathRay = wave[query.hit()];
+            Double3 kk = transparencies[q].product(pathRay.k());
+            if (kk.lowerThan(termination.getMinK())) continue;
+
+            GeoPoint hit = hits[query.hit()];
+            Material material = hit.geometry.getMaterial();
+            Vector n = hit.getNormal();
+            sums[pathRay.index()].addScaled(query.light().getIntensity(hit.point), kk,
+                    calcDiffusive(material, query.nl())
+                            .add(calcSpecular(material, n, query.l(), query.nl(), pathRay.ray().getDirection())));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BoundingBox
+ */
+class BoundingBoxTest {
+
+    /**
+     * Unit box for the tests
+     */
+    private final BoundingBox box = new BoundingBox(new Point(0, 0, 0), new Point(1, 1, 1));
+
+    /**
+     * Test method for {@link geometries.BoundingBox#entryDistance(Ray, double)}.
+     */
+    @Test
+    void testEntryDistance() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray enters the box diagonally
+        assertEquals(1, box.entryDistance(new Ray(new Point(-1, -1, -1), new Vector(1, 1, 1)),
+                Double.POSITIVE_INFINITY) / Math.sqrt(3), 1e-10, "Wrong entry distance");
+
+        // TC02: Ray misses the box
+        assertEquals(BoundingBox.MISS, box.entryDistance(new Ray(new Point(-1, 2, 0.5), new Vector(1, 0.1, 0)),
+                Double.POSITIVE_INFINITY), "Ray should miss the box");
+
+        // TC03: Box is behind the ray
+        assertFalse(box.hasIntersections(new Ray(new Point(2, 0.5, 0.5), new Vector(1, 0, 0))),
+                "Box behind the ray should not be intersected");
+
+        // TC04: Ray starts inside the box
+        assertTrue(box.entryDistance(new Ray(new Point(0.5, 0.5, 0.5), new Vector(-1, 0, 0)),
+                Double.POSITIVE_INFINITY) < 0, "Entry distance should be negative inside the box");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Ray parallel to two axes inside their slabs
+        assertEquals(2, box.entryDistance(new Ray(new Point(0.5, 0.5, 3), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY), 1e-10, "Wrong entry distance for an axis-parallel ray");
+
+        // TC11: Ray parallel to two axes outside of a slab
+        assertFalse(box.hasIntersections(new Ray(new Point(1.5, 0.5, 3), new Vector(0, 0, -1))),
+                "Axis-parallel ray outside of the box should miss it");
+
+        // TC12: Box is beyond the maximal distance
+        assertEquals(BoundingBox.MISS, box.entryDistance(new Ray(new Point(0.5, 0.5, 3), new Vector(0, 0, -1)), 1.5),
+                "Box beyond the maximal distance should be missed");
+    }
+}
@@ -5,6 +5,8 @@ import geometries.Plane;
 import geometries.Sphere;
 import geometries.Triangle;
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -66,4 +68,143 @@ class GeometriesTest {
 
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for
+     * {@link Geometries#makeBVH()}.
+     */
+    @Test
+    void testMakeBVH() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(0.4, new Point(i, j, 0)));
+        geometries.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+        geometries.makeBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: A ray through one of the spheres cuts the sphere and the plane.
+        Ray ray1 = new Ray(new Point(3, 7, 10), new Vector(0, 0, -1));
+        assertEquals(3, geometries.findIntersections(ray1).size(), "BVH lost intersections of a sphere");
+
+        //TC02: A ray between the spheres cuts only the plane.
+        Ray ray2 = new Ray(new Point(3.5, 7.5, 10), new Vector(0, 0, -1));
+        assertEquals(1, geometries.findIntersections(ray2).size(), "BVH found wrong intersections");
+
+        //TC03: A ray along a row of spheres cuts all of them.
+        Ray ray3 = new Ray(new Point(-5, 4, 0), new Vector(1, 0, 0));
+        assertEquals(20, geometries.findIntersections(ray3).size(), "BVH lost intersections of a row of spheres");
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: A repeated build keeps the BVH, and a body added afterwards is found once the BVH is rebuilt.
+        geometries.makeBVH();
+        assertEquals(1, geometries.findIntersections(ray2).size(), "Repeated BVH build changed the intersections");
+        geometries.add(new Sphere(0.1, new Point(3.5, 7.5, 0)));
+        geometries.makeBVH();
+        assertEquals(3, geometries.findIntersections(ray2).size(), "Rebuilt BVH lost the added body");
+    }
+
+    /**
+     * Test method for
+     * {@link Geometries#findClosestGeoIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            geometries.add(new Sphere(0.4, new Point(i, 0, 0)));
+        Ray ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        Ray oppositeRay = new Ray(new Point(15, 0, 0), new Vector(-1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The closest of several bodies without a BVH.
+        assertEquals(new Point(-0.4, 0, 0), geometries.findClosestGeoIntersection(ray).point,
+                "Wrong closest intersection without BVH");
+
+        //TC02: The closest of several bodies with a BVH, from both sides.
+        geometries.makeBVH();
+        assertEquals(new Point(-0.4, 0, 0), geometries.findClosestGeoIntersection(ray).point,
+                "Wrong closest intersection with BVH");
+        assertEquals(new Point(9.4, 0, 0), geometries.findClosestGeoIntersection(oppositeRay).point,
+                "Wrong closest intersection with BVH for the opposite ray");
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: The closest intersection is beyond the maximal distance.
+        assertNull(geometries.findClosestGeoIntersection(ray, 4), "Found intersection beyond the maximal distance");
+
+        //TC04: No body is intersected.
+        assertNull(geometries.findClosestGeoIntersection(new Ray(new Point(-5, 1, 0), new Vector(1, 0, 0))),
+                "Found intersection for a ray that misses all the bodies");
+    }
+
+    /**
+     * Test method for
+     * {@link Geometries#findClosestGeoIntersections(Ray[])}.
+     */
+    @Test
+    void testFindClosestGeoIntersections() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(0.3, new Point(i, j, -i - j)));
+        geometries.makeBVH();
+        // a packet bigger than a single packet of the hierarchy, with rays that diverge and rays that miss
+        Ray[] rays = new Ray[100];
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                rays[i * 10 + j] = new Ray(new Point(4.5, 4.5, 20), new Vector(i - 4.5, j - 4.5, -25));
+
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: Every ray of the packet gets the same closest intersection as when it is traced alone.
+        Intersectable.GeoPoint[] closest = geometries.findClosestGeoIntersections(rays);
+        assertEquals(rays.length, closest.length, "Wrong amount of results");
+        int hits = 0;
+        for (int i = 0; i < rays.length; i++) {
+            Intersectable.GeoPoint expected = geometries.findClosestGeoIntersection(rays[i]);
+            if (expected == null) assertNull(closest[i], "Found intersection for a missing ray " + i);
+            else {
+                ++hits;
+                assertEquals(expected, closest[i], "Wrong closest intersection of ray " + i);
+            }
+        }
+        assertTrue(hits > 0 && hits < rays.length, "The packet should contain both hitting and missing rays");
+    }
+
+    /**
+     * Test method for
+     * {@link Geometries#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    void testFindTransparency() {
+        Geometries geometries = new Geometries();
+        geometries.add(new Sphere(1, new Point(2, 0, 0)).setMaterial(new Material().setKT(0.5)),
+                new Sphere(1, new Point(5, 0, 0)).setMaterial(new Material().setKT(0.5)),
+                new Sphere(1, new Point(8, 0, 0)));
+        geometries.makeBVH();
+        Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Two transparent bodies before the maximal distance (two intersections each).
+        assertEquals(new Double3(0.0625), geometries.findTransparency(ray, 6.5, 0.001),
+                "Wrong transparency of transparent bodies");
+
+        //TC02: An opaque body before the maximal distance blocks the ray.
+        assertEquals(Double3.ZERO, geometries.findTransparency(ray, 10, 0.001),
+                "An opaque body does not block the ray");
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: The transparency drops below the minimum.
+        assertEquals(Double3.ZERO, geometries.findTransparency(ray, 6.5, 0.1),
+                "The transparency below the minimum does not block the ray");
+
+        //TC04: No body before the maximal distance.
+        assertEquals(Double3.ONE, geometries.findTransparency(ray, 0.5, 0.001),
+                "Found shading body beyond the maximal distance");
+    }
+}
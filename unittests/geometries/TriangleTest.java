@@ -110,4 +110,37 @@ class TriangleTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link geometries.Intersectable#findGeoIntersections(primitives.Ray)}.
+     */
+    @Test
+    public void testFindGeoIntersections() {
+        Triangle triangle = new Triangle(new Point(1, 0, 0), new Point(1, 2, 0), new Point(3, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hit record carries the distance, the normal and the barycentric coordinates
+        var result = triangle.findGeoIntersections(new Ray(new Point(1.5, 1, -1), new Vector(0, 0, 1)));
+        assertNotNull(result, "Ray inside the triangle should intersect it");
+        Intersectable.GeoPoint geoPoint = result.getFirst();
+        assertEquals(new Point(1.5, 1, 0), geoPoint.point, "Wrong intersection point");
+        assertEquals(1, geoPoint.distance, DELTA, "Wrong intersection distance");
+        assertEquals(triangle.getNormal(geoPoint.point), geoPoint.getNormal(), "Wrong normal in the hit record");
+        assertEquals(0.5, geoPoint.u, DELTA, "Wrong first barycentric coordinate");
+        assertEquals(0.25, geoPoint.v, DELTA, "Wrong second barycentric coordinate");
+        // =============== Boundary Values Tests ==================
+        Triangle tiny = new Triangle(new Point(0, 0, 0), new Point(1e-6, 0, 0), new Point(0, 1e-6, 0));
+        Point center = new Point(2.5e-7, 2.5e-7, 0);
+        // TC10: A tiny triangle is hit head-on
+        result = tiny.findGeoIntersections(new Ray(new Point(2.5e-7, 2.5e-7, -1), new Vector(0, 0, 1)));
+        assertNotNull(result, "A ray should hit a tiny triangle head-on");
+        assertEquals(center, result.getFirst().point, "Wrong intersection point with a tiny triangle");
+        // TC11: A tiny triangle is hit at an angle, although the determinant is far below the accuracy
+        result = tiny.findGeoIntersections(new Ray(new Point(2.5e-7, 2.5e-7 - 0.8, -0.6), new Vector(0, 0.8, 0.6)));
+        assertNotNull(result, "A ray should hit a tiny triangle at an angle");
+        assertEquals(center, result.getFirst().point, "Wrong intersection point with a tiny triangle");
+        // TC12: A big triangle with a ray that is almost parallel to its plane
+        Triangle big = new Triangle(new Point(-1e6, -1e6, 0), new Point(1e6, -1e6, 0), new Point(0, 1e6, 0));
+        assertNull(big.findGeoIntersections(new Ray(new Point(0, 0, -1e-10), new Vector(1, 0, 1e-14))),
+                "A ray almost parallel to a big triangle shouldn't hit it");
+    }
+}
@@ -0,0 +1,69 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing ColorAccumulator
+ */
+class ColorAccumulatorTest {
+
+    /**
+     * Test method for {@link primitives.ColorAccumulator#average()}.
+     */
+    @Test
+    void testAverage() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The average of the added samples
+        ColorAccumulator accumulator = new ColorAccumulator()
+                .add(new Color(10, 20, 30))
+                .add(new Color(30, 40, 50));
+        assertEquals(2, accumulator.getCount(), "Wrong amount of samples");
+        assertEquals(new Color(20, 30, 40).toString(), accumulator.average().toString(), "Wrong average color");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: No samples were added
+        assertSame(Color.BLACK, new ColorAccumulator().average(), "The average of no samples should be black");
+    }
+
+    /**
+     * Test method for {@link primitives.ColorAccumulator#deviation()}.
+     */
+    @Test
+    void testDeviation() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The deviation of the most varying component
+        assertEquals(10, new ColorAccumulator().add(new Color(10, 20, 30)).add(new Color(30, 24, 30)).deviation(),
+                1e-10, "Wrong deviation");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Equal samples
+        assertEquals(0, new ColorAccumulator().add(new Color(5, 6, 7)).add(new Color(5, 6, 7)).deviation(),
+                1e-10, "Equal samples should not deviate");
+        // TC11: A single sample
+        assertEquals(0, new ColorAccumulator().add(new Color(5, 6, 7)).deviation(), "A single sample can't deviate");
+    }
+
+    /**
+     * Test method for {@link primitives.ColorAccumulator#addScaled(Color, Double3, Double3)}.
+     */
+    @Test
+    void testAddScaled() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The scaled color is added to the initial color
+        Color base = new Color(1, 2, 3);
+        Color light = new Color(100, 100, 100);
+        Double3 k1 = new Double3(0.5, 0.25, 1);
+        Double3 k2 = new Double3(0.1, 0.2, 0.3);
+        assertEquals(base.add(light.scale(k1).scale(k2)).toString(),
+                new ColorAccumulator(base).addScaled(light, k1, k2).toColor().toString(),
+                "Wrong sum of a scaled color");
+        assertEquals(0, new ColorAccumulator(base).addScaled(light, k1, k2).getCount(),
+                "A scaled contribution should not be counted as a sample");
+
+        // TC02: A negative scale is illegal
+        assertThrows(IllegalArgumentException.class, () -> new ColorAccumulator(base).scale(-1),
+                "Scaled by a negative number");
+    }
+}
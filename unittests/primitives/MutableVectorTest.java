@@ -0,0 +1,50 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing MutableVector
+ */
+class MutableVectorTest {
+
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private final double DELTA = 0.000001;
+
+    /**
+     * Test method for {@link primitives.MutableVector#scaleAdd(Vector, double)}.
+     */
+    @Test
+    void testScaleAdd() {
+        Point p = new Point(1, 2, 3);
+        Vector v = new Vector(1, -1, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: In place calculation gives the same result as the immutable one
+        MutableVector m = new MutableVector(p);
+        assertSame(m, m.scaleAdd(v, 2), "scaleAdd should return the same object");
+        assertEquals(p.add(v.scale(2)), m.toPoint(), "Wrong result of scaleAdd");
+    }
+
+    /**
+     * Test method for {@link primitives.MutableVector#normalize()}.
+     */
+    @Test
+    void testNormalize() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The triad is normalized in place
+        MutableVector m = new MutableVector(new Vector(1, 2, 3)).normalize();
+        assertEquals(1, m.length(), DELTA, "The normalized triad is not a unit vector");
+        assertEquals(new Vector(1, 2, 3).normalize(), m.toVector(), "Wrong normalized triad");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A zero triad is allowed but cannot be converted to a vector
+        MutableVector zero = new MutableVector(new Point(1, 2, 3)).subtract(new Point(1, 2, 3));
+        assertEquals(0, zero.lengthSquared(), DELTA, "Subtracting a point from itself should give zero");
+        assertThrows(IllegalArgumentException.class, zero::toVector, "Converted a zero triad to a vector");
+    }
+}
@@ -1,6 +1,14 @@
 package renderer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import org.junit.jupiter.api.Test;
 
@@ -66,4 +74,146 @@ class CameraTest {
 
     }
 
+    /**
+     * Image writer that keeps the last written pixel color instead of an image
+     */
+    private static class PixelCapture extends ImageWriter {
+        /**
+         * The last written pixel color
+         */
+        private Color color;
+
+        /**
+         * Constructs a capture of a single pixel image
+         */
+        PixelCapture() {
+            super("Test", 1, 1);
+        }
+
+        @Override
+        public void writePixel(int xIndex, int yIndex, Color color) {
+            this.color = color;
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setAdaptiveSuperSampling(int, double)}.
+     */
+    @Test
+    void testAdaptiveSuperSampling() {
+        // a white triangle covers 57.5% of the pixel, the edge is off the lattice points
+        Scene scene = new Scene("Test");
+        scene.geometries.add(new geometries.Triangle(new Point(0.3, -100, -20), new Point(0.3, 100, -20),
+                new Point(-100, 0, -20)).setEmission(new Color(255, 255, 255)));
+        Camera.Builder builder = Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(10).setVpSize(2, 2)
+                .setMultithreading(0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The pixel on the edge is subdivided - 4.5 of the 8 columns of the finest cells are white
+        PixelCapture capture = new PixelCapture();
+        builder.setImageWriter(capture).setAdaptiveSuperSampling(3, 1).build().renderImage();
+        assertEquals(255 * 4.5 / 8, capture.color.getColor().getRed(), 1, "Wrong super sampled color");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The corners don't deviate above the threshold - the average of the corners
+        capture = new PixelCapture();
+        builder.setImageWriter(capture).setAdaptiveSuperSampling(3, 200).build().renderImage();
+        assertEquals(127, capture.color.getColor().getRed(), "Wrong average of the corners");
+
+        // TC11: Super sampling can't be combined with depth of field rays
+        assertThrows(IllegalArgumentException.class, () -> builder.setNumOfRays(10).build(),
+                "Super sampling with depth of field rays");
+    }
+
+    /**
+     * Ray tracer that counts the traced rays
+     */
+    private static class CountingRayTracer extends SimpleRayTracer {
+        /**
+         * The amount of traced rays
+         */
+        private int rays = 0;
+
+        /**
+         * Constructs a counting ray tracer
+         *
+         * @param scene the scene
+         */
+        CountingRayTracer(Scene scene) {
+            super(scene);
+        }
+
+        @Override
+        public Color[] traceRays(Ray[] rays) {
+            this.rays += rays.length;
+            return super.traceRays(rays);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setCheckpoint(Path, long)}
+     * and {@link renderer.Camera.Builder#setResume(boolean)}.
+     *
+     * @throws IOException if the checkpoint file can't be accessed
+     */
+    @Test
+    void testCheckpoint() throws IOException {
+        Scene scene = new Scene("Test");
+        scene.geometries.add(new geometries.Sphere(20, new Point(0, 0, -50)).setEmission(new Color(40, 20, 10))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new lighting.PointLight(new Point(30, 30, 0), new Color(400, 300, 200)));
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(50).setVpSize(50, 50)
+                .setMultithreading(0).setTileSize(8);
+
+        ImageWriter expected = new ImageWriter("Test", 32, 32);
+        builder.setRayTracer(new SimpleRayTracer(scene)).setImageWriter(expected).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A render that is interrupted after half of the tiles keeps them in the checkpoint file
+        assertThrows(IllegalStateException.class, () -> builder.setImageWriter(new ImageWriter("Test", 32, 32))
+                .setCheckpoint(file, 3_600_000)
+                .setProgressListener(percent -> {
+                    if (percent >= 50) throw new IllegalStateException("Interrupted");
+                })
+                .build().renderImage(), "The render wasn't interrupted");
+        assertTrue(Files.size(file) > 0, "The finished tiles weren't saved");
+
+        // TC02: The resumed render restores the saved tiles, renders only the other tiles,
+        // and deletes the checkpoint file when it is completed
+        // a record with corrupted bounds, which is dropped with what follows it
+        Files.write(file, java.nio.ByteBuffer.allocate(4 * Integer.BYTES + 3).putInt(0).putInt(0).putInt(-8).putInt(8)
+                .array(), StandardOpenOption.APPEND);
+        CountingRayTracer rayTracer = new CountingRayTracer(scene);
+        ImageWriter resumed = new ImageWriter("Test", 32, 32);
+        builder.setRayTracer(rayTracer).setImageWriter(resumed).setProgressListener(null).setResume(true)
+                .build().renderImage();
+        assertEquals(32 * 32 / 2, rayTracer.rays, "Wrong amount of rendered pixels");
+        for (int i = 0; i < 32; ++i)
+            for (int j = 0; j < 32; ++j)
+                assertEquals(expected.getPixel(j, i).getColor(), resumed.getPixel(j, i).getColor(),
+                        "Wrong resumed pixel");
+        assertFalse(Files.exists(file), "The checkpoint file wasn't deleted");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Resuming without a checkpoint file renders the whole image
+        rayTracer = new CountingRayTracer(scene);
+        builder.setRayTracer(rayTracer).setImageWriter(new ImageWriter("Test", 32, 32)).build().renderImage();
+        assertEquals(32 * 32, rayTracer.rays, "Wrong amount of rendered pixels");
+
+        // TC11: Resuming requires a checkpoint file
+        assertThrows(java.util.MissingResourceException.class, () -> builder.setCheckpoint(null, 0).build(),
+                "Resuming without a checkpoint file");
+
+        // TC12: The checkpoint interval can't be negative
+        assertThrows(IllegalArgumentException.class, () -> builder.setCheckpoint(file, -1),
+                "Negative checkpoint interval");
+    }
 }
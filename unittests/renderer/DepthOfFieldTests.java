@@ -60,4 +60,19 @@ public class DepthOfFieldTests {
         camera.setRayTracer(new SimpleRayTracer(scene)).setImageWriter(new ImageWriter("depthOfField", 1800, 1800))
                 .build().renderImage().writeToImage();
     }
+
+    /**
+     * Create the depth of field scene with the adaptive amount of rays per pixel
+     */
+    @Test
+    public void adaptiveDepthOfFieldImage() {
+        scene.geometries.add(spheres[0], spheres[1], spheres[2], spheres[3], spheres[4]);
+
+        scene.lights.add(new DirectionalLight(new Vector(0, 0, 1), new Color(WHITE)));
+
+        camera.setRayTracer(new SimpleRayTracer(scene)).setAdaptiveDepthOfField(8, 1)
+                .setLensSampler(new JitteredLensSampler())
+                .setImageWriter(new ImageWriter("adaptiveDepthOfField", 1800, 1800))
+                .build().renderImage().writeToImage();
+    }
 }
@@ -3,7 +3,16 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test class for ImageWriter.
@@ -38,4 +47,99 @@ public class ImageWriterTest {
         // Write the image to file
         imageWriter.writeToImage();
     }
+
+    /**
+     * Test method for {@link ImageWriter#writePixel(int, int, Color)} and {@link ImageWriter#addToPixel(int, int, Color)}.
+     */
+    @Test
+    public void testWritePixel() {
+        ImageWriter imageWriter = new ImageWriter("test", 3, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The components above 255 are kept in the frame buffer
+        imageWriter.writePixel(2, 1, new Color(300, 20.5, 0));
+        Color pixel = imageWriter.getPixel(2, 1);
+        assertEquals(300, pixel.getRed(), 1e-4, "Wrong red component");
+        assertEquals(20.5, pixel.getGreen(), 1e-4, "Wrong green component");
+        assertEquals(0, imageWriter.getPixel(1, 1).getRed(), "The neighbour pixel should not be written");
+
+        // TC02: The colors of progressive passes are accumulated
+        imageWriter.addToPixel(2, 1, new Color(100, 0.5, 1));
+        pixel = imageWriter.getPixel(2, 1);
+        assertEquals(400, pixel.getRed(), 1e-4, "Wrong accumulated red component");
+        assertEquals(21, pixel.getGreen(), 1e-4, "Wrong accumulated green component");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A component just below a level is not rounded up to the level
+        imageWriter.writePixel(0, 0, new Color(254.99999999, 0, 0));
+        assertTrue(imageWriter.getPixel(0, 0).getRed() < 255, "The component was rounded up");
+
+        // TC11: A component just below a level that is added to a cleared pixel is stored as if it was written
+        imageWriter.addToPixel(1, 0, new Color(254.99999999, 0, 0));
+        assertEquals(imageWriter.getPixel(0, 0).getRed(), imageWriter.getPixel(1, 0).getRed(),
+                "The added component is rounded differently than the written one");
+
+        // TC12: The exposure must be positive
+        assertThrows(IllegalArgumentException.class, () -> imageWriter.setExposure(0), "Zero exposure");
+    }
+
+    /**
+     * Test method for {@link ImageWriter#writeToPfm()} and {@link ImageWriter#writeToExr()}.
+     *
+     * @throws IOException if the written files can't be read
+     */
+    @Test
+    public void testWriteHdr() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("hdrTest", 3, 2);
+        imageWriter.writePixel(1, 0, new Color(300, 20.5, 7));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: PFM - the header and the top row written last, with the components above 255
+        imageWriter.writeToPfm();
+        byte[] pfm = Files.readAllBytes(Path.of(System.getProperty("user.dir"), "images", "hdrTest.pfm"));
+        String header = "PF\n3 2\n-1.0\n";
+        assertEquals(header, new String(pfm, 0, header.length()), "Wrong PFM header");
+        assertEquals(header.length() + 2 * 3 * 3 * Float.BYTES, pfm.length, "Wrong PFM size");
+        ByteBuffer data = ByteBuffer.wrap(pfm).order(ByteOrder.LITTLE_ENDIAN);
+        int pixel = header.length() + (3 + 1) * 3 * Float.BYTES; // the second pixel of the second written row
+        assertEquals(300, data.getFloat(pixel), "Wrong PFM red component");
+        assertEquals(7, data.getFloat(pixel + 2 * Float.BYTES), "Wrong PFM blue component");
+
+        // TC02: OpenEXR - the magic number and the planar channels of the first scanline
+        imageWriter.writeToExr();
+        data = ByteBuffer.wrap(Files.readAllBytes(Path.of(System.getProperty("user.dir"), "images", "hdrTest.exr")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(20000630, data.getInt(0), "Wrong EXR magic number");
+        int line = (int) data.getLong(data.capacity() - 2 * (8 + 3 * 3 * Float.BYTES) - 2 * Long.BYTES);
+        assertEquals(0, data.getInt(line), "Wrong EXR scanline");
+        assertEquals(3 * 3 * Float.BYTES, data.getInt(line + 4), "Wrong EXR scanline size");
+        assertEquals(7, data.getFloat(line + 8 + Float.BYTES), "Wrong EXR blue component");
+        assertEquals(20.5, data.getFloat(line + 8 + (3 + 1) * Float.BYTES), "Wrong EXR green component");
+        assertEquals(300, data.getFloat(line + 8 + (6 + 1) * Float.BYTES), "Wrong EXR red component");
+    }
+
+    /**
+     * Test method for {@link ImageWriter#writeToImage()} - the PNG is read back by ImageIO.
+     *
+     * @throws IOException if the written file can't be read
+     */
+    @Test
+    public void testWriteToImage() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: An image of several compressed bands, with levels above 255 and fractions
+        final int width = 300, height = 400;
+        ImageWriter imageWriter = new ImageWriter("pngTest", width, height);
+        for (int x = 0; x < width; ++x)
+            for (int y = 0; y < height; ++y)
+                imageWriter.writePixel(x, y, new Color(x, (x * y) % 256 + 0.9, y * 7 % 301));
+        imageWriter.writeToImage();
+
+        BufferedImage image = ImageIO.read(Path.of(System.getProperty("user.dir"), "images", "pngTest.png").toFile());
+        assertEquals(width, image.getWidth(), "Wrong PNG width");
+        assertEquals(height, image.getHeight(), "Wrong PNG height");
+        for (int x = 0; x < width; ++x)
+            for (int y = 0; y < height; ++y)
+                assertEquals(new Color(x, (x * y) % 256 + 0.9, y * 7 % 301).getColor().getRGB(), image.getRGB(x, y),
+                        "Wrong PNG pixel (" + x + "," + y + ")");
+    }
 }
@@ -0,0 +1,66 @@
+package renderer;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing IterativeRayTracer
+ */
+class IterativeRayTracerTest {
+
+    /**
+     * Test method for {@link renderer.IterativeRayTracer#traceRay(Ray)}.
+     */
+    @Test
+    void testTraceRay() {
+        // a transparent bubble with a sphere inside it in front of two mirrors
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(
+                new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
+                                .setKT(new Double3(0.5, 0, 0))),
+                new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKR(1)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKR(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new SpotLight(new Vector(-1, -1, -4), new Point(-750, -750, -150), new Color(1020, 400, 400))
+                .setKl(0.00001).setKq(0.000005));
+
+        final int n = 40;
+        Camera camera = Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("iterativeTracer", n, n))
+                .setRayTracer(new SimpleRayTracer(scene))
+                .build();
+        RayTracerBase recursive = new SimpleRayTracer(scene);
+        RayTracerBase iterative = new IterativeRayTracer(scene);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Both tracers give the same colors up to the rounding
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                Ray ray = camera.constructRay(n, n, j, i);
+                java.awt.Color expected = recursive.traceRay(ray).getColor();
+                java.awt.Color actual = iterative.traceRay(ray).getColor();
+                assertEquals(expected.getRed(), actual.getRed(), 1, "Wrong red component at " + j + "," + i);
+                assertEquals(expected.getGreen(), actual.getGreen(), 1, "Wrong green component at " + j + "," + i);
+                assertEquals(expected.getBlue(), actual.getBlue(), 1, "Wrong blue component at " + j + "," + i);
+            }
+    }
+}
@@ -0,0 +1,100 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the lens samplers
+ */
+class LensSamplerTest {
+
+    /**
+     * Check that a sampler fills the offsets of all the samples in the range [-0.5, 0.5)
+     *
+     * @param sampler the sampler
+     * @param count   the amount of samples
+     */
+    private static void assertInRange(LensSampler sampler, int count) {
+        double[] offsets = new double[2 * count];
+        Arrays.fill(offsets, Double.NaN);
+        sampler.sample(3, 7, count, offsets);
+        for (double offset : offsets)
+            assertTrue(offset >= -0.5 && offset < 0.5,
+                    sampler.getClass().getSimpleName() + " offset out of the aperture: " + offset);
+    }
+
+    /**
+     * Test method for {@link LensSampler#sample(int, int, int, double[])}.
+     */
+    @Test
+    void testSample() {
+        LensSampler[] samplers = {new RandomLensSampler(), new JitteredLensSampler(),
+                new HaltonLensSampler(), new BlueNoiseLensSampler()};
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: All the samples are on the aperture
+        for (LensSampler sampler : samplers) assertInRange(sampler, 10);
+
+        // TC02: A jittered square amount of samples has a sample in every cell of the grid
+        double[] offsets = new double[2 * 16];
+        new JitteredLensSampler().sample(0, 0, 16, offsets);
+        boolean[] cells = new boolean[16];
+        for (int k = 0; k < 16; ++k)
+            cells[(int) ((offsets[2 * k + 1] + 0.5) * 4) * 4 + (int) ((offsets[2 * k] + 0.5) * 4)] = true;
+        for (boolean cell : cells) assertTrue(cell, "Jittered samples should cover every cell");
+
+        // TC03: A prefix of the jittered samples is spread over all the rows of the grid
+        offsets = new double[2 * 64];
+        new JitteredLensSampler().sample(0, 0, 64, offsets);
+        boolean[] rows = new boolean[8];
+        for (int k = 0; k < 8; ++k) rows[(int) ((offsets[2 * k + 1] + 0.5) * 8)] = true;
+        for (boolean gridRow : rows) assertTrue(gridRow, "The first jittered samples should cover every row");
+
+        // TC04: The blue noise samples keep away from each other (on the torus)
+        offsets = new double[2 * 16];
+        new BlueNoiseLensSampler().sample(0, 0, 16, offsets);
+        for (int a = 0; a < 16; ++a)
+            for (int b = a + 1; b < 16; ++b) {
+                double dx = Math.abs(offsets[2 * a] - offsets[2 * b]);
+                double dy = Math.abs(offsets[2 * a + 1] - offsets[2 * b + 1]);
+                dx = Math.min(dx, 1 - dx);
+                dy = Math.min(dy, 1 - dy);
+                assertTrue(dx * dx + dy * dy > 0.05 * 0.05, "Blue noise samples are too close");
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A single sample
+        for (LensSampler sampler : samplers) assertInRange(sampler, 1);
+
+        // TC11: An amount of samples that is not a square
+        for (LensSampler sampler : samplers) assertInRange(sampler, 7);
+
+        // TC12: The stride of the jittered cells visits every cell once
+        for (int count = 1; count <= 100; ++count) {
+            boolean[] visited = new boolean[count];
+            for (int k = 0, i = 0; k < count; ++k, i = (i + JitteredLensSampler.stride(count)) % count) {
+                assertFalse(visited[i], "A jittered cell is visited twice");
+                visited[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link HaltonLensSampler#radicalInverse(int, int)}.
+     */
+    @Test
+    void testRadicalInverse() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first elements of the van der Corput sequences in bases 2 and 3
+        assertEquals(0.5, HaltonLensSampler.radicalInverse(1, 2), 1e-12, "Wrong base 2 inverse");
+        assertEquals(0.375, HaltonLensSampler.radicalInverse(6, 2), 1e-12, "Wrong base 2 inverse");
+        assertEquals(2 / 3.0 + 1 / 9.0, HaltonLensSampler.radicalInverse(5, 3), 1e-12, "Wrong base 3 inverse");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Zero index
+        assertEquals(0, HaltonLensSampler.radicalInverse(0, 2), "Wrong inverse of zero");
+    }
+}
@@ -0,0 +1,66 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing PixelManager Class
+ */
+class PixelManagerTest {
+
+    /**
+     * Count how many times each pixel is covered by the tiles of a pixel manager
+     *
+     * @param pixelManager the pixel manager
+     * @param nX           the amount of columns
+     * @param nY           the amount of rows
+     * @return the coverage count of each pixel
+     */
+    private int[][] coverage(PixelManager pixelManager, int nX, int nY) {
+        int[][] counts = new int[nY][nX];
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null)
+            for (int i = tile.startRow(); i < tile.endRow(); i++)
+                for (int j = tile.startCol(); j < tile.endCol(); j++)
+                    counts[i][j]++;
+        return counts;
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.PixelManager#nextTile()}.
+     */
+    @Test
+    void testNextTile() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every pixel of a non-square image is dispensed exactly once in every order
+        for (TileOrder order : TileOrder.values()) {
+            int[][] counts = coverage(new PixelManager(37, 50, 8, order, null), 50, 37);
+            for (int[] row : counts)
+                for (int count : row)
+                    assertEquals(1, count, "Pixel is not dispensed exactly once in " + order + " order");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a tile bigger than the image
+        int[][] counts = coverage(new PixelManager(3, 5, 16, TileOrder.ROW_MAJOR, null), 5, 3);
+        for (int[] row : counts)
+            for (int count : row)
+                assertEquals(1, count, "Pixel is not dispensed exactly once with a big tile");
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.PixelManager#tileDone(PixelManager.Tile)}.
+     */
+    @Test
+    void testTileDone() {
+        double[] progress = {0};
+        PixelManager pixelManager = new PixelManager(10, 10, 4, TileOrder.MORTON, p -> progress[0] = p);
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null)
+            pixelManager.tileDone(tile);
+        assertEquals(100, progress[0], 1e-10, "Progress does not reach 100% when all the tiles are done");
+    }
+}
@@ -0,0 +1,103 @@
+package renderer;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing StreamingImageWriter
+ */
+class StreamingImageWriterTest {
+    /**
+     * Scene for the tests
+     */
+    private final Scene scene = new Scene("Streaming test scene")
+            .setAmbientLight(new AmbientLight(new Color(40, 40, 40), new Double3(1)));
+
+    /**
+     * Camera builder for the tests
+     */
+    private final Camera.Builder camera = Camera.getBuilder()
+            .setRayTracer(new SimpleRayTracer(scene))
+            .setLocation(Point.ZERO)
+            .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(60, 40)
+            .setTileSize(8).setMultithreading(3);
+
+    /**
+     * Render the scene into a streaming writer and compare the file to the frame buffer of a regular writer
+     *
+     * @param name       the name of the image
+     * @param bandHeight the height of the bands of the streaming writer
+     * @throws IOException if the written file can't be read
+     */
+    private void assertStreamed(String name, int bandHeight) throws IOException {
+        ImageWriter expected = new ImageWriter(name, 75, 50);
+        camera.setImageWriter(expected).build().renderImage();
+        StreamingImageWriter streaming = new StreamingImageWriter(name, 75, 50, bandHeight);
+        camera.setImageWriter(streaming).build().renderImage();
+        assertEquals(50, streaming.getWrittenRows(), "All the rows should be written when the rendering is done");
+
+        BufferedImage image = ImageIO.read(Path.of(System.getProperty("user.dir"), "images", name + ".png").toFile());
+        for (int x = 0; x < 75; ++x)
+            for (int y = 0; y < 50; ++y)
+                assertEquals(expected.getPixel(x, y).getColor().getRGB(), image.getRGB(x, y),
+                        "Wrong streamed pixel (" + x + "," + y + ")");
+    }
+
+    /**
+     * Test method for {@link StreamingImageWriter#tileDone(PixelManager.Tile)}.
+     *
+     * @throws IOException if the written file can't be read
+     */
+    @Test
+    void testTileDone() throws IOException {
+        scene.geometries.add(new Sphere(15, new Point(0, 0, -100))
+                .setEmission(new Color(30, 60, 90))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Point(30, 30, 0), new Color(500, 300, 200)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Bands as high as the tiles
+        assertStreamed("streamedTiles", 8);
+        // TC02: Bands that are not aligned with the tiles
+        assertStreamed("streamedBands", 5);
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A single band of the whole image
+        assertStreamed("streamedImage", 50);
+    }
+
+    /**
+     * Test method for {@link StreamingImageWriter#writeToImage()}.
+     *
+     * @throws IOException if the written file can't be read
+     */
+    @Test
+    void testWriteToImage() throws IOException {
+        StreamingImageWriter imageWriter = new StreamingImageWriter("streamedPixels", 4, 6, 4);
+        imageWriter.writePixel(1, 5, new Color(10, 20, 30));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The pixels are written without tiles, the other pixels are black
+        imageWriter.writeToImage();
+        BufferedImage image = ImageIO.read(Path.of(System.getProperty("user.dir"), "images", "streamedPixels.png").toFile());
+        assertEquals(new java.awt.Color(10, 20, 30).getRGB(), image.getRGB(1, 5), "Wrong written pixel");
+        assertEquals(new java.awt.Color(0, 0, 0).getRGB(), image.getRGB(0, 0), "Wrong pixel that was not written");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A row that was already written to the file can't be changed
+        assertThrows(IllegalStateException.class, () -> imageWriter.writePixel(0, 0, Color.BLACK),
+                "Wrote a pixel to a written row");
+    }
+}
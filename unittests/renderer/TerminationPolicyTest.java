@@ -0,0 +1,100 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TerminationPolicy
+ */
+class TerminationPolicyTest {
+
+    /**
+     * Test method for {@link renderer.TerminationPolicy#isLastLevel(int, Material)}.
+     */
+    @Test
+    void testIsLastLevel() {
+        Material mirror = new Material().setKR(1);
+        TerminationPolicy policy = new TerminationPolicy().setMaxLevel(5).setMaxLevel(mirror, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A material without a limit continues until the last level
+        assertFalse(policy.isLastLevel(2, new Material()), "Stopped before the last level");
+        // TC02: A limited material stops at its level (the second hit)
+        assertFalse(policy.isLastLevel(5, mirror), "The first hit on the material should continue");
+        assertTrue(policy.isLastLevel(4, mirror), "The material's level limit is ignored");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The last level
+        assertTrue(policy.isLastLevel(1, new Material()), "Continued beyond the last level");
+        // TC11: Illegal levels
+        assertThrows(IllegalArgumentException.class, () -> new TerminationPolicy().setMaxLevel(0),
+                "Accepted a zero maximum level");
+    }
+
+    /**
+     * Test method for {@link renderer.TerminationPolicy#branchFactor(Double3, Double3)}.
+     */
+    @Test
+    void testBranchFactor() {
+        Double3 kx = new Double3(0.5);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A significant branch is traced with the material factor
+        assertSame(kx, new TerminationPolicy().branchFactor(kx, Double3.ONE), "Wrong factor of a significant branch");
+        // TC02: A branch below the threshold is terminated
+        assertNull(new TerminationPolicy().branchFactor(kx, new Double3(0.001)), "Insignificant branch is traced");
+        // TC03: Russian roulette keeps the expected contribution
+        TerminationPolicy roulette = new TerminationPolicy().setMinK(0).setRussianRoulette(0.5);
+        Double3 k = new Double3(0.1);
+        final int trials = 100000;
+        int survived = 0;
+        Double3 sum = Double3.ZERO;
+        for (int i = 0; i < trials; ++i) {
+            Double3 factor = roulette.branchFactor(kx, k);
+            if (factor != null) {
+                ++survived;
+                sum = sum.add(factor);
+            }
+        }
+        assertEquals(0.1, (double) survived / trials, 0.01, "Wrong survival rate of the roulette");
+        assertEquals(0.5, sum.reduce(trials).max(), 0.05, "Russian roulette is biased");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A branch without contribution is never traced, even without a threshold
+        assertNull(new TerminationPolicy().setMinK(0).branchFactor(Double3.ZERO, Double3.ONE),
+                "Branch without contribution is traced");
+    }
+
+    /**
+     * Test method for {@link renderer.TerminationPolicy#setRussianRoulette(double)}.
+     */
+    @Test
+    void testSetRussianRoulette() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A roulette threshold between the minimal threshold and 1
+        assertDoesNotThrow(() -> new TerminationPolicy().setMinK(0.01).setRussianRoulette(0.5),
+                "Legal roulette threshold");
+        // TC02: A roulette threshold below the minimal threshold
+        assertThrows(IllegalArgumentException.class,
+                () -> new TerminationPolicy().setMinK(0.01).setRussianRoulette(0.005),
+                "Roulette threshold below the minimal threshold");
+        // TC03: A minimal threshold above the roulette threshold
+        assertThrows(IllegalArgumentException.class,
+                () -> new TerminationPolicy().setMinK(0).setRussianRoulette(0.005).setMinK(0.01),
+                "Minimal threshold above the roulette threshold");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A roulette threshold equal to the minimal threshold
+        assertDoesNotThrow(() -> new TerminationPolicy().setMinK(0.01).setRussianRoulette(0.01),
+                "Roulette threshold equal to the minimal threshold");
+        // TC11: No roulette, whatever the minimal threshold
+        assertDoesNotThrow(() -> new TerminationPolicy().setMinK(0.01).setRussianRoulette(0).setMinK(0.5),
+                "Disabled roulette");
+        // TC12: A roulette threshold above 1
+        assertThrows(IllegalArgumentException.class, () -> new TerminationPolicy().setRussianRoulette(1.1),
+                "Roulette threshold above 1");
+    }
+}
@@ -0,0 +1,92 @@
+package renderer;
+
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing WavefrontRayTracer
+ */
+class WavefrontRayTracerTest {
+
+    /**
+     * Test method for {@link renderer.WavefrontRayTracer#traceRays(Ray[])}
+     * and {@link renderer.WavefrontRayTracer#traceRays(Ray[], boolean, double[])}.
+     */
+    @Test
+    void testTraceRays() {
+        // a transparent sphere casting a partial shadow on two triangles, one of them a mirror
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60).setKR(0.5)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+                new Sphere(30d, new Point(60, 50, -50)).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKd(0.2).setKs(0.2).setShininess(30).setKT(0.6)));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        scene.setBackground(new Color(10, 20, 30));
+        scene.lights.add(new SpotLight(new Vector(0, 0, -1), new Point(60, 50, 0), new Color(700, 400, 400))
+                .setKl(4E-5).setKq(2E-7));
+        scene.lights.add(new PointLight(new Point(-100, 100, 100), new Color(300, 300, 300)).setKl(0.0001));
+
+        final int n = 40;
+        Camera camera = Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 1000)).setVpDistance(1000)
+                .setVpSize(200, 200)
+                .setImageWriter(new ImageWriter("wavefrontTracer", n, n))
+                .setRayTracer(new SimpleRayTracer(scene))
+                .build();
+        Ray[] rays = new Ray[n * n];
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+                rays[i * n + j] = camera.constructRay(n, n, j, i);
+        Color[] expected = new SimpleRayTracer(scene).traceRays(rays);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The batch is traced with the same colors as the recursive tracer up to the rounding
+        Color[] actual = new WavefrontRayTracer(scene).traceRays(rays);
+        assertEquals(rays.length, actual.length, "Wrong amount of colors");
+        for (int i = 0; i < rays.length; ++i) {
+            java.awt.Color e = expected[i].getColor();
+            java.awt.Color a = actual[i].getColor();
+            assertEquals(e.getRed(), a.getRed(), 1, "Wrong red component of ray " + i);
+            assertEquals(e.getGreen(), a.getGreen(), 1, "Wrong green component of ray " + i);
+            assertEquals(e.getBlue(), a.getBlue(), 1, "Wrong blue component of ray " + i);
+        }
+
+        // TC02: A packet of the same rays gives the same colors as the batch
+        Color[] packet = new WavefrontRayTracer(scene).tracePacket(rays);
+        for (int i = 0; i < rays.length; ++i)
+            assertEquals(actual[i].toString(), packet[i].toString(), "Wrong color of ray " + i + " in a packet");
+
+        // TC03: The tracers report the distances of the closest hits of the traced rays
+        for (RayTracerBase tracer : new RayTracerBase[]{new SimpleRayTracer(scene), new WavefrontRayTracer(scene)})
+            for (boolean isPacket : new boolean[]{false, true}) {
+                Color[] reference = tracer instanceof WavefrontRayTracer ? actual : expected;
+                double[] distances = new double[rays.length];
+                Color[] colors = tracer.traceRays(rays, isPacket, distances);
+                for (int i = 0; i < rays.length; ++i) {
+                    var hit = scene.geometries.findClosestGeoIntersection(rays[i]);
+                    assertEquals(hit == null ? Double.POSITIVE_INFINITY : hit.point.distance(rays[i].getHead()),
+                            distances[i], 1e-9, "Wrong distance of the hit of ray " + i);
+                    assertEquals(reference[i].toString(), colors[i].toString(), "Wrong color of ray " + i);
+                }
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A single ray that misses all the geometries sees the background
+        assertSame(scene.background,
+                new WavefrontRayTracer(scene).traceRay(new Ray(new Point(0, 0, 1000), new Vector(0, 0, 1))),
+                "A missing ray should see the background");
+    }
+}